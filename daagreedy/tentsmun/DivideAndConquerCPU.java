@@ -215,12 +215,10 @@ public class DivideAndConquerCPU {
 
         // Help multiple trees
         int helpfulTreeCount = 0;
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TREE) {
-                if (!isTreeSatisfied(state, nr, nc)) {
+        int idx = state.cellIndex(r, c);
+        for (int d : state.getNeighbours4()) {
+            if (state.getCellAt(idx + d) == GameState.TREE) {
+                if (!isTreeSatisfiedAt(state, idx + d)) {
                     helpfulTreeCount++;
                 }
             }
@@ -313,12 +311,15 @@ public class DivideAndConquerCPU {
     // HELPER METHODS
     // ===============================================
 
+    // Row/column form for the quadrant and tree scans; move scoring already
+    // holds a flat index and calls isTreeSatisfiedAt
     private static boolean isTreeSatisfied(GameState state, int r, int c) {
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TENT) {
+        return isTreeSatisfiedAt(state, state.cellIndex(r, c));
+    }
+
+    private static boolean isTreeSatisfiedAt(GameState state, int idx) {
+        for (int d : state.getNeighbours4()) {
+            if (state.getCellAt(idx + d) == GameState.TENT) {
                 return true;
             }
         }
@@ -331,11 +332,11 @@ public class DivideAndConquerCPU {
 
     private static List<Point> getValidTentNeighbors(GameState state, int r, int c) {
         List<Point> neighbors = new ArrayList<>();
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.EMPTY) {
+        int idx = state.cellIndex(r, c);
+        for (int d : state.getNeighbours4()) {
+            if (state.getCellAt(idx + d) == GameState.EMPTY) {
+                int nr = state.rowOf(idx + d);
+                int nc = state.colOf(idx + d);
                 if (isValidTentSpot(state, nr, nc)) {
                     neighbors.add(new Point(nr, nc));
                 }
@@ -350,16 +351,12 @@ public class DivideAndConquerCPU {
         if (state.getCell(r, c) != GameState.EMPTY)
             return false;
 
+        int idx = state.cellIndex(r, c);
+
         // Check tent adjacency
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr == 0 && dc == 0)
-                    continue;
-                int nr = r + dr;
-                int nc = c + dc;
-                if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TENT) {
-                    return false;
-                }
+        for (int d : state.getNeighbours8()) {
+            if (state.getCellAt(idx + d) == GameState.TENT) {
+                return false;
             }
         }
 
@@ -371,11 +368,8 @@ public class DivideAndConquerCPU {
 
         // Check tree adjacency
         boolean hasTree = false;
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TREE) {
+        for (int d : state.getNeighbours4()) {
+            if (state.getCellAt(idx + d) == GameState.TREE) {
                 hasTree = true;
                 break;
             }
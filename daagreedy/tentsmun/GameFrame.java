@@ -8,9 +8,16 @@ public class GameFrame extends JFrame {
     private BoardPanel boardPanel;
     private JLabel statusLabel;
     private String opponentType; // "Greedy" or "DivideConquer"
+    private final PuzzleBuffer buffer;
 
     public GameFrame(int size, String opponentType) {
+        this(size, opponentType, new PuzzleBuffer());
+    }
+
+    // Boards for this and later games come from buffer
+    public GameFrame(int size, String opponentType, PuzzleBuffer buffer) {
         this.opponentType = opponentType;
+        this.buffer = buffer;
         setTitle("Tents & Trees - vs " + (opponentType.equals("Greedy") ? "Greedy AI" : "Divide & Conquer AI"));
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(950, 800);
@@ -21,8 +28,7 @@ public class GameFrame extends JFrame {
     }
 
     private void initNewGame(int size) {
-        gameState = new GameState(size);
-        gameState.generateSolvablePuzzle();
+        gameState = buffer.take(size);
 
         if (boardPanel != null)
             remove(boardPanel);
@@ -147,4 +153,4 @@ public class GameFrame extends JFrame {
     public void updateStatus(String s) {
         statusLabel.setText(s);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -11,9 +12,16 @@ public class GameState {
     public static final int TREE = 1;
     public static final int TENT = 2;
     public static final int GRASS = 3;
+    // Value of the permanent ring around the board in the flat cell grid
+    public static final int BORDER = 4;
 
     private final int n;
-    private final int[][] board;
+    // Play board as a flat byte grid of (n + 2)^2 cells with a BORDER ring, so
+    // neighbour scans are plain index offsets with no bounds checks
+    private final int stride;
+    private final byte[] cells;
+    private final int[] neighbours4;
+    private final int[] neighbours8;
     private final int[][] solution;
     private final List<Point> trees;
 
@@ -25,7 +33,11 @@ public class GameState {
 
     public GameState(int n) {
         this.n = n;
-        this.board = new int[n][n];
+        this.stride = n + 2;
+        this.cells = new byte[stride * stride];
+        this.neighbours4 = new int[] { stride, -stride, 1, -1 };
+        this.neighbours8 = new int[] { -stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1 };
+        Arrays.fill(cells, (byte) BORDER);
         this.solution = new int[n][n];
         this.trees = new ArrayList<>();
         this.rowTarget = new int[n];
@@ -39,7 +51,36 @@ public class GameState {
     }
 
     public int getCell(int r, int c) {
-        return board[r][c];
+        return cells[cellIndex(r, c)];
+    }
+
+    // Index of (r, c) in the flat grid; r and c may be -1 or n for the border
+    public int cellIndex(int r, int c) {
+        return (r + 1) * stride + c + 1;
+    }
+
+    public int rowOf(int index) {
+        return index / stride - 1;
+    }
+
+    public int colOf(int index) {
+        return index % stride - 1;
+    }
+
+    // Cell value by flat index, BORDER on the ring around the board
+    public int getCellAt(int index) {
+        return cells[index];
+    }
+
+    // Index offsets of the 4 orthogonal neighbours (down, up, right, left).
+    // The array is shared, callers must not modify it.
+    public int[] getNeighbours4() {
+        return neighbours4;
+    }
+
+    // Index offsets of all 8 neighbours; shared, do not modify
+    public int[] getNeighbours8() {
+        return neighbours8;
     }
 
     public int getSolutionCell(int r, int c) {
@@ -69,8 +110,8 @@ public class GameState {
     public void resetBoard() {
         for (int r = 0; r < n; r++) {
             for (int c = 0; c < n; c++) {
-                if (board[r][c] == TENT || board[r][c] == GRASS) {
-                    board[r][c] = EMPTY;
+                if (getCell(r, c) == TENT || getCell(r, c) == GRASS) {
+                    cells[cellIndex(r, c)] = EMPTY;
                 }
             }
         }
@@ -84,7 +125,7 @@ public class GameState {
         }
         for (int r = 0; r < n; r++) {
             for (int c = 0; c < n; c++) {
-                if (board[r][c] == TENT) {
+                if (getCell(r, c) == TENT) {
                     rowUsed[r]++;
                     colUsed[c]++;
                 }
@@ -107,7 +148,7 @@ public class GameState {
         for (int r = 0; r < n; r++) {
             for (int c = 0; c < n; c++) {
                 solution[r][c] = EMPTY;
-                board[r][c] = EMPTY;
+                cells[cellIndex(r, c)] = EMPTY;
             }
             rowTarget[r] = 0;
             colTarget[r] = 0;
@@ -171,9 +212,9 @@ public class GameState {
         for (int r = 0; r < n; r++) {
             for (int c = 0; c < n; c++) {
                 if (solution[r][c] == TREE) {
-                    board[r][c] = TREE;
+                    cells[cellIndex(r, c)] = TREE;
                 } else {
-                    board[r][c] = EMPTY;
+                    cells[cellIndex(r, c)] = EMPTY;
                 }
             }
         }
@@ -197,6 +238,14 @@ public class GameState {
         return false;
     }
 
+    private boolean hasNeighborTentAt(int idx) {
+        for (int d : neighbours8) {
+            if (cells[idx + d] == TENT)
+                return true;
+        }
+        return false;
+    }
+
     public boolean inBounds(int r, int c) {
         return r >= 0 && r < n && c >= 0 && c < n;
     }
@@ -208,9 +257,9 @@ public class GameState {
     public void setCell(int r, int c, int value) {
         if (!inBounds(r, c))
             return;
-        if (board[r][c] == TREE)
+        if (getCell(r, c) == TREE)
             return;
-        board[r][c] = value;
+        cells[cellIndex(r, c)] = (byte) value;
         recalcCounts();
     }
 
@@ -218,7 +267,7 @@ public class GameState {
     public boolean placeTent(int r, int c) {
         if (!inBounds(r, c))
             return false;
-        if (board[r][c] == TREE || board[r][c] == TENT)
+        if (getCell(r, c) == TREE || getCell(r, c) == TENT)
             return false;
         setCell(r, c, TENT);
         return true;
@@ -269,8 +318,8 @@ public class GameState {
     private boolean hasAdjacencyViolation() {
         for (int r = 0; r < n; r++) {
             for (int c = 0; c < n; c++) {
-                if (board[r][c] == TENT) {
-                    if (hasNeighborTent(board, r, c))
+                if (getCell(r, c) == TENT) {
+                    if (hasNeighborTentAt(cellIndex(r, c)))
                         return true;
                 }
             }
@@ -279,24 +328,22 @@ public class GameState {
     }
 
     private boolean hasValidMatching() {
-        List<Point> currentTents = new ArrayList<>();
+        List<Integer> currentTents = new ArrayList<>();
         for (int r = 0; r < n; r++) {
             for (int c = 0; c < n; c++) {
-                if (board[r][c] == TENT)
-                    currentTents.add(new Point(r, c));
+                int idx = cellIndex(r, c);
+                if (cells[idx] == TENT)
+                    currentTents.add(idx);
             }
         }
 
         if (currentTents.size() != trees.size())
             return false;
 
-        for (Point t : currentTents) {
+        for (int t : currentTents) {
             boolean adj = false;
-            int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-            for (int[] d : dirs) {
-                int nr = t.x + d[0];
-                int nc = t.y + d[1];
-                if (inBounds(nr, nc) && board[nr][nc] == TREE) {
+            for (int d : neighbours4) {
+                if (cells[t + d] == TREE) {
                     adj = true;
                     break;
                 }
@@ -308,20 +355,20 @@ public class GameState {
         return match(currentTents, new boolean[trees.size()], 0);
     }
 
-    private boolean match(List<Point> tents, boolean[] treeUsed, int tentIdx) {
+    private boolean match(List<Integer> tents, boolean[] treeUsed, int tentIdx) {
         if (tentIdx == tents.size())
             return true;
 
-        Point t = tents.get(tentIdx);
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = t.x + d[0];
-            int nc = t.y + d[1];
+        int t = tents.get(tentIdx);
+        for (int d : neighbours4) {
+            int idx = t + d;
+            if (cells[idx] != TREE)
+                continue;
 
             int treeIdx = -1;
             for (int i = 0; i < trees.size(); i++) {
                 Point tree = trees.get(i);
-                if (tree.x == nr && tree.y == nc) {
+                if (cellIndex(tree.x, tree.y) == idx) {
                     treeIdx = i;
                     break;
                 }
@@ -336,4 +383,4 @@ public class GameState {
         }
         return false;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
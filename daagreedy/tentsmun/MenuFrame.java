@@ -6,6 +6,8 @@ public class MenuFrame extends JFrame {
 
     private int selectedSize = 8;
     private String selectedOpponent = "Greedy";
+    // Starts generating boards while the player is still in the menu
+    private final PuzzleBuffer buffer = new PuzzleBuffer();
 
     public MenuFrame() {
         setTitle("Tents & Trees - Menu");
@@ -14,6 +16,9 @@ public class MenuFrame extends JFrame {
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
 
+        for (int size : new int[] { 6, 8, 10 }) {
+            buffer.prefetch(size);
+        }
         createUI();
         setVisible(true);
     }
@@ -128,7 +133,7 @@ public class MenuFrame extends JFrame {
     private void startGame() {
         dispose(); // Close menu
         SwingUtilities.invokeLater(() -> {
-            GameFrame game = new GameFrame(selectedSize, selectedOpponent);
+            GameFrame game = new GameFrame(selectedSize, selectedOpponent, buffer);
             game.setVisible(true);
         });
     }
@@ -0,0 +1,61 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Generates the next board of each size in the background, so a new game
+ * starts from a finished board instead of generating on the Swing thread.
+ * One board per size is enough here: a game is always followed by at most
+ * one "New Game" of the same size.
+ */
+public class PuzzleBuffer {
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "puzzle-buffer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    // Board size -> the next board of that size; guarded by this
+    private final Map<Integer, CompletableFuture<GameState>> next = new HashMap<>();
+
+    // Starts generating a board of this size unless one is already on its way
+    public synchronized void prefetch(int size) {
+        next.computeIfAbsent(size, this::generateLater);
+    }
+
+    // A board of the size, and starts on the one after it. Called from the
+    // Swing thread, so it never waits: a board still being generated may be
+    // queued behind other sizes on the worker, and is left for the next game
+    // while this one is generated here.
+    public GameState take(int size) {
+        CompletableFuture<GameState> ready = null;
+        synchronized (this) {
+            CompletableFuture<GameState> pending = next.get(size);
+            if (pending == null || pending.isDone()) {
+                next.put(size, generateLater(size));
+                ready = pending;
+            }
+        }
+        if (ready != null && !ready.isCompletedExceptionally())
+            return ready.join();
+        return generate(size);
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private CompletableFuture<GameState> generateLater(int size) {
+        return CompletableFuture.supplyAsync(() -> generate(size), worker);
+    }
+
+    private static GameState generate(int size) {
+        GameState state = new GameState(size);
+        state.generateSolvablePuzzle();
+        return state;
+    }
+}
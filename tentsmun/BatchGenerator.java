@@ -0,0 +1,88 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Generates many puzzles of one shape in parallel on a ForkJoinPool.
+ *
+ * Puzzle i is always generated from its own PuzzleId, whose seed is
+ * {@link #seedFor(long, int)}, so the puzzle at each index depends only on
+ * the master seed and the index, never on the pool size or on which worker
+ * happened to build it. Every delivered puzzle carries that id.
+ */
+public class BatchGenerator {
+
+    // Puzzles per leaf task; one PuzzleGenerator is reused across a leaf
+    private static final int LEAF_SIZE = 8;
+
+    private final int rows;
+    private final int cols;
+    private final int targetTents;
+    private final boolean unique;
+
+    public BatchGenerator(int rows, int cols, boolean unique) {
+        this(rows, cols, Math.max(rows, cols) + 1, unique);
+    }
+
+    public BatchGenerator(int rows, int cols, int targetTents, boolean unique) {
+        this.rows = rows;
+        this.cols = cols;
+        this.targetTents = targetTents;
+        this.unique = unique;
+    }
+
+    /**
+     * Generates puzzles 0 .. count-1 on the given pool and passes each to
+     * {@code consumer} with its index as soon as it is finished. Puzzles
+     * arrive in completion order, one call at a time, so the consumer does
+     * not need to be thread-safe. Returns when all are delivered.
+     */
+    public void generate(ForkJoinPool pool, long masterSeed, int count, ObjIntConsumer<PuzzleData> consumer) {
+        pool.invoke(new Range(masterSeed, 0, count, consumer, new Object()));
+    }
+
+    // Seed of puzzle index in the batch of masterSeed
+    public static long seedFor(long masterSeed, int index) {
+        return PuzzleData.mix64(masterSeed + (index + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    // Id of the puzzle at index; rebuilding it gives the same puzzle as the batch
+    public PuzzleId idFor(long masterSeed, int index) {
+        return new PuzzleId(rows, cols, targetTents, unique, seedFor(masterSeed, index));
+    }
+
+    private class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long masterSeed;
+        private final int from;
+        private final int to;
+        private final ObjIntConsumer<PuzzleData> consumer;
+        private final Object deliveryLock;
+
+        Range(long masterSeed, int from, int to, ObjIntConsumer<PuzzleData> consumer, Object deliveryLock) {
+            this.masterSeed = masterSeed;
+            this.from = from;
+            this.to = to;
+            this.consumer = consumer;
+            this.deliveryLock = deliveryLock;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                PuzzleGenerator generator = new PuzzleGenerator(rows, cols, targetTents);
+                for (int i = from; i < to; i++) {
+                    PuzzleData puzzle = idFor(masterSeed, i).generate(generator);
+                    synchronized (deliveryLock) {
+                        consumer.accept(puzzle, i);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Range(masterSeed, from, mid, consumer, deliveryLock),
+                    new Range(masterSeed, mid, to, consumer, deliveryLock));
+        }
+    }
+}
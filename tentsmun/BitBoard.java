@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * Word-parallel mirror of the play board. Tents and trees are kept as
+ * separate bit-planes with one row stored in {@code words} consecutive longs
+ * (column c lives in bit c & 63 of word c >>> 6), so neighbourhood tests become
+ * a few shifts and masks instead of a 3x3 loop with bounds checks.
+ */
+public class BitBoard {
+
+    private final int rows;
+    private final int words;
+
+    private final long[] tents;
+    private final long[] trees;
+
+    public BitBoard(int n) {
+        this(n, n);
+    }
+
+    public BitBoard(int rows, int cols) {
+        this.rows = rows;
+        this.words = (cols + 63) >>> 6;
+        this.tents = new long[rows * words];
+        this.trees = new long[rows * words];
+    }
+
+    public void copyFrom(BitBoard other) {
+        System.arraycopy(other.tents, 0, tents, 0, tents.length);
+        System.arraycopy(other.trees, 0, trees, 0, trees.length);
+    }
+
+    public void set(int r, int c, int value) {
+        int i = r * words + (c >>> 6);
+        long bit = 1L << c;
+        tents[i] &= ~bit;
+        trees[i] &= ~bit;
+        if (value == GameState.TENT) {
+            tents[i] |= bit;
+        } else if (value == GameState.TREE) {
+            trees[i] |= bit;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(tents, 0L);
+        Arrays.fill(trees, 0L);
+    }
+
+    public boolean isTent(int r, int c) {
+        return (tents[r * words + (c >>> 6)] & (1L << c)) != 0;
+    }
+
+    public boolean isTree(int r, int c) {
+        return (trees[r * words + (c >>> 6)] & (1L << c)) != 0;
+    }
+
+    // Any tent in the 8-neighbourhood of (r, c), the cell itself excluded
+    public boolean hasAdjacentTent(int r, int c) {
+        return (window(tents, r - 1, c) | window(tents, r + 1, c) | (window(tents, r, c) & 5L)) != 0;
+    }
+
+    // Number of tents in the 8-neighbourhood of (r, c), the cell itself excluded
+    public int countAdjacentTents(int r, int c) {
+        return Long.bitCount(window(tents, r - 1, c)) + Long.bitCount(window(tents, r + 1, c))
+                + Long.bitCount(window(tents, r, c) & 5L);
+    }
+
+    // Any tree directly above, below, left or right of (r, c)
+    public boolean hasOrthogonalTree(int r, int c) {
+        return ((window(trees, r - 1, c) | window(trees, r + 1, c)) & 2L) != 0
+                || (window(trees, r, c) & 5L) != 0;
+    }
+
+    /**
+     * Whole-board adjacency check: a tent touches another if it shares a bit
+     * with its right neighbour in the same row, or with the row below smeared
+     * one column left and right.
+     */
+    public boolean hasTouchingTents() {
+        for (int r = 0; r < rows; r++) {
+            int row = r * words;
+            int below = row + words;
+            for (int w = 0; w < words; w++) {
+                long t = tents[row + w];
+                if (t == 0)
+                    continue;
+                if ((t & shiftRight1(tents, row, w)) != 0)
+                    return true;
+                if (r + 1 < rows) {
+                    long b = tents[below + w];
+                    long zone = b | shiftLeft1(tents, below, w) | shiftRight1(tents, below, w);
+                    if ((t & zone) != 0)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Columns c-1, c, c+1 of row r packed into bits 0..2; off-board cells read as 0
+    private long window(long[] plane, int r, int c) {
+        if (r < 0 || r >= rows)
+            return 0L;
+        int row = r * words;
+        if (c == 0)
+            return (plane[row] & 3L) << 1;
+        int start = c - 1;
+        int w = start >>> 6;
+        int b = start & 63;
+        long bits = plane[row + w] >>> b;
+        if (b > 61 && w + 1 < words)
+            bits |= plane[row + w + 1] << (64 - b);
+        return bits & 7L;
+    }
+
+    // Word w of a row shifted one column towards higher indices
+    private long shiftLeft1(long[] plane, int row, int w) {
+        long v = plane[row + w] << 1;
+        if (w > 0)
+            v |= plane[row + w - 1] >>> 63;
+        return v;
+    }
+
+    // Word w of a row shifted one column towards lower indices
+    private long shiftRight1(long[] plane, int row, int w) {
+        long v = plane[row + w] >>> 1;
+        if (w + 1 < words)
+            v |= plane[row + w + 1] << 63;
+        return v;
+    }
+}
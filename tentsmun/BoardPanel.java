@@ -21,9 +21,9 @@ public class BoardPanel extends JPanel {
         this.gameState = gameState;
         this.frame = frame;
 
-        int size = gameState.getSize();
-        int pref = offset + size * cellSize + 20;
-        setPreferredSize(new Dimension(pref, pref));
+        int width = offset + gameState.getCols() * cellSize + 20;
+        int height = offset + gameState.getRows() * cellSize + 20;
+        setPreferredSize(new Dimension(width, height));
         setBackground(Color.WHITE);
 
         MouseAdapter ma = new MouseAdapter() {
@@ -60,6 +60,12 @@ public class BoardPanel extends JPanel {
         if (!gameState.inBounds(r, c))
             return;
 
+        // One undo step per press that changes a cell, covering any grass
+        // drag that follows; trees never change, and right clicks skip tents
+        int pressed = gameState.getCell(r, c);
+        if (pressed != GameState.TREE && (SwingUtilities.isLeftMouseButton(e)
+                || SwingUtilities.isRightMouseButton(e) && pressed != GameState.TENT))
+            frame.recordUndoPoint();
         if (SwingUtilities.isRightMouseButton(e)) {
             isDragging = true;
             int current = gameState.getCell(r, c);
@@ -115,28 +121,35 @@ public class BoardPanel extends JPanel {
         Graphics2D g2 = (Graphics2D) g;
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        int n = gameState.getSize();
+        // Paint from one immutable view so the frame is never torn. The board is
+        // edited on this thread, so publishing here is safe; it only copies
+        // rows changed since the last frame.
+        BoardView view = gameState.publish();
+        int rows = view.getRows();
+        int cols = view.getCols();
 
         g2.setColor(cBoard);
-        g2.fillRect(offset, offset, n * cellSize, n * cellSize);
+        g2.fillRect(offset, offset, cols * cellSize, rows * cellSize);
 
         g2.setColor(cGrid);
         g2.setStroke(new BasicStroke(1));
-        for (int i = 0; i <= n; i++) {
-            g2.drawLine(offset, offset + i * cellSize, offset + n * cellSize, offset + i * cellSize);
-            g2.drawLine(offset + i * cellSize, offset, offset + i * cellSize, offset + n * cellSize);
+        for (int i = 0; i <= rows; i++) {
+            g2.drawLine(offset, offset + i * cellSize, offset + cols * cellSize, offset + i * cellSize);
+        }
+        for (int i = 0; i <= cols; i++) {
+            g2.drawLine(offset + i * cellSize, offset, offset + i * cellSize, offset + rows * cellSize);
         }
 
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
                 int x = offset + c * cellSize;
                 int y = offset + r * cellSize;
-                int cell = gameState.getCell(r, c);
+                int cell = view.getCell(r, c);
 
                 if (cell == GameState.TREE) {
                     drawTree(g2, x, y);
                 } else if (cell == GameState.TENT) {
-                    drawTent(g2, x, y, r, c);
+                    drawTent(g2, view, x, y, r, c);
                 } else if (cell == GameState.GRASS) {
                     drawGrass(g2, x, y);
                 }
@@ -145,9 +158,9 @@ public class BoardPanel extends JPanel {
 
         g2.setFont(new Font("SansSerif", Font.BOLD, 22));
 
-        for (int r = 0; r < n; r++) {
-            int target = gameState.getRowTarget(r);
-            int current = gameState.getRowUsed(r);
+        for (int r = 0; r < rows; r++) {
+            int target = view.getRowTarget(r);
+            int current = view.getRowUsed(r);
 
             if (current == target)
                 g2.setColor(new Color(0, 180, 0));
@@ -161,9 +174,9 @@ public class BoardPanel extends JPanel {
             g2.drawString(s, offset - 30, offset + r * cellSize + (cellSize + fm.getAscent()) / 2 - 5);
         }
 
-        for (int c = 0; c < n; c++) {
-            int target = gameState.getColTarget(c);
-            int current = gameState.getColUsed(c);
+        for (int c = 0; c < cols; c++) {
+            int target = view.getColTarget(c);
+            int current = view.getColUsed(c);
 
             if (current == target)
                 g2.setColor(new Color(0, 180, 0));
@@ -187,7 +200,7 @@ public class BoardPanel extends JPanel {
         g2.fillOval(x + 10, y + 10, 40, 40);
     }
 
-    private void drawTent(Graphics2D g2, int x, int y, int r, int c) {
+    private void drawTent(Graphics2D g2, BoardView view, int x, int y, int r, int c) {
         g2.setColor(new Color(255, 140, 0));
 
         int[] xs = { x + 10, x + 30, x + 50 };
@@ -199,7 +212,7 @@ public class BoardPanel extends JPanel {
         for (int[] d : dirs) {
             int nr = r + d[0];
             int nc = c + d[1];
-            if (gameState.inBounds(nr, nc) && gameState.getCell(nr, nc) == GameState.TENT) {
+            if (view.inBounds(nr, nc) && view.getCell(nr, nc) == GameState.TENT) {
                 error = true;
                 break;
             }
@@ -0,0 +1,50 @@
+import java.util.Arrays;
+
+/**
+ * Handle to an earlier board position of one GameState, taken with
+ * {@link GameState#snapshot()} in O(1) and brought back with
+ * {@link GameState#restore(BoardSnapshot)}.
+ *
+ * Nothing is copied when the snapshot is taken. Instead, the first time a
+ * row changes after it, the owner saves that row's previous contents here.
+ * A row image is stored once and serves every older snapshot, which can find
+ * it by following {@code next}. Retained snapshots therefore cost memory in
+ * proportion to the rows changed since they were taken, not one board each.
+ * Restoring a snapshot discards every snapshot taken after it and unlinks
+ * them, so the chain only holds positions that can still be restored.
+ */
+public final class BoardSnapshot {
+
+    // Identifies the owner's current history; a new puzzle or a bulk copy
+    // starts a new one and older snapshots can no longer be restored
+    final Object history;
+
+    // Next newer snapshot of the same history, or null for the newest
+    BoardSnapshot next;
+    // Set when an older snapshot was restored after this one was taken
+    boolean discarded;
+
+    // Rows first changed while this was the newest snapshot, and their
+    // contents just before that change
+    int[] rows = new int[4];
+    byte[][] images = new byte[4][];
+    int count;
+
+    BoardSnapshot(Object history) {
+        this.history = history;
+    }
+
+    void save(int row, byte[] image) {
+        if (count == rows.length) {
+            rows = Arrays.copyOf(rows, count * 2);
+            images = Arrays.copyOf(images, count * 2);
+        }
+        rows[count] = row;
+        images[count++] = image;
+    }
+
+    // Number of row images held by this snapshot itself
+    public int getSavedRowCount() {
+        return count;
+    }
+}
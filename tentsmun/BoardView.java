@@ -0,0 +1,81 @@
+/**
+ * Immutable, versioned picture of a GameState board, published by
+ * {@link GameState#publish()}. Any thread may read a view without locking
+ * while the owner keeps playing; it never changes after publication.
+ *
+ * Rows are stored 2 bits per cell (see PackedGrid), and consecutive views
+ * share every row that did not change between them, so publishing after a
+ * move packs one row, not the board.
+ */
+public final class BoardView {
+
+    private final long version;
+    private final int cols;
+    private final PuzzleData puzzle;
+    private final long[][] rows;
+    private final int[] rowUsed;
+    private final int[] colUsed;
+    private final long hashKey;
+
+    // Arrays are owned by the view from here on; rows may be shared with
+    // other views but are never written again
+    BoardView(long version, int cols, PuzzleData puzzle, long[][] rows, int[] rowUsed, int[] colUsed, long hashKey) {
+        this.version = version;
+        this.cols = cols;
+        this.puzzle = puzzle;
+        this.rows = rows;
+        this.rowUsed = rowUsed;
+        this.colUsed = colUsed;
+        this.hashKey = hashKey;
+    }
+
+    // Increases with every publish of the owning state
+    public long getVersion() {
+        return version;
+    }
+
+    public PuzzleData getPuzzle() {
+        return puzzle;
+    }
+
+    public int getRows() {
+        return rows.length;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public boolean inBounds(int r, int c) {
+        return r >= 0 && r < rows.length && c >= 0 && c < cols;
+    }
+
+    public int getCell(int r, int c) {
+        return PackedGrid.get(rows[r], c);
+    }
+
+    public int getRowTarget(int r) {
+        return puzzle.getRowTarget(r);
+    }
+
+    public int getColTarget(int c) {
+        return puzzle.getColTarget(c);
+    }
+
+    public int getRowUsed(int r) {
+        return rowUsed[r];
+    }
+
+    public int getColUsed(int c) {
+        return colUsed[c];
+    }
+
+    public long getHashKey() {
+        return hashKey;
+    }
+
+    // Row storage, for the owner to share with the next version
+    long[][] rows() {
+        return rows;
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+/**
+ * Map from flat cell index to a small id, for indexes that only ever hold a
+ * few of the board's cells. Open addressing with linear probing over two
+ * parallel int arrays that grow with the number of entries, not with the
+ * board, so the index of the current tents costs nothing per empty cell.
+ */
+public final class CellIdMap {
+
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] ids;
+    private int mask;
+    private int size;
+
+    public CellIdMap() {
+        allocate(16);
+    }
+
+    // Id stored for cell, or -1
+    public int get(int cell) {
+        for (int i = slot(cell);; i = (i + 1) & mask) {
+            int key = keys[i];
+            if (key == cell)
+                return ids[i];
+            if (key == FREE)
+                return -1;
+        }
+    }
+
+    public void put(int cell, int id) {
+        int i = slot(cell);
+        while (keys[i] != FREE && keys[i] != cell) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == FREE) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                put(cell, id);
+                return;
+            }
+            keys[i] = cell;
+            size++;
+        }
+        ids[i] = id;
+    }
+
+    public void remove(int cell) {
+        int i = slot(cell);
+        while (keys[i] != cell) {
+            if (keys[i] == FREE)
+                return;
+            i = (i + 1) & mask;
+        }
+        // Shift later entries of the probe run back instead of leaving a
+        // tombstone, so lookups never scan deleted slots
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                ids[i] = ids[j];
+                i = j;
+            }
+        }
+        keys[i] = FREE;
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    public void copyFrom(CellIdMap other) {
+        if (keys.length != other.keys.length) {
+            keys = new int[other.keys.length];
+            ids = new int[other.keys.length];
+            mask = other.mask;
+        }
+        System.arraycopy(other.keys, 0, keys, 0, keys.length);
+        System.arraycopy(other.ids, 0, ids, 0, ids.length);
+        size = other.size;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        ids = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, FREE);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldIds = ids;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE)
+                put(oldKeys[i], oldIds[i]);
+        }
+    }
+
+    private int slot(int cell) {
+        int h = cell * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
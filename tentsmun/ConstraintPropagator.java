@@ -0,0 +1,283 @@
+/**
+ * Event-driven deduction for DivideConquerCPU. Rows, columns and trees wait
+ * in a worklist, and a change to a cell only schedules the units whose legal
+ * spots it can affect, so draining the list reaches a fixpoint at a cost
+ * proportional to what changed. The rules:
+ * <ul>
+ * <li>An empty cell that cannot take a tent (no orthogonal tree, touching a
+ * tent, or in a full row or column) is marked GRASS.</li>
+ * <li>A run of L adjacent legal cells in a line holds at most (L + 1) / 2
+ * tents. If the runs of a line can only just hold the tents it still needs,
+ * odd runs take tents on every other cell, and each pair of an even run
+ * holds exactly one tent, so the cells beside both of them are grass.</li>
+ * <li>An unsatisfied tree with a single legal spot gets its tent there; with
+ * more, any cell touching all of its spots is grass.</li>
+ * </ul>
+ * A line over its target, a line that cannot hold the tents it still needs,
+ * or an unsatisfied tree with no legal spot means the board has no
+ * solution.
+ */
+public class ConstraintPropagator {
+
+    private final GameState state;
+    private final int rows;
+    private final int cols;
+    private final TreeIndex trees;
+    private final int stride;
+    // Legal spots of the tree being checked
+    private final int[] candidates = new int[4];
+
+    // Units are numbered rows first, then columns, then trees
+    private final int colBase;
+    private final int treeBase;
+    private final int[] stack;
+    private final boolean[] queued;
+    private int size;
+    // Unit being checked; its own changes do not schedule it again
+    private int current = -1;
+
+    public ConstraintPropagator(GameState state) {
+        this.state = state;
+        this.rows = state.getRows();
+        this.cols = state.getCols();
+        this.trees = state.getPuzzle().treeIndex();
+        this.stride = state.getNeighbours4()[0];
+        this.colBase = rows;
+        this.treeBase = rows + cols;
+        int units = treeBase + state.getPuzzle().getTreeCount();
+        this.stack = new int[units];
+        this.queued = new boolean[units];
+    }
+
+    // Schedules every row, column and tree, e.g. for a board not seen before
+    public void enqueueAll() {
+        for (int u = stack.length - 1; u >= 0; u--) {
+            push(u);
+        }
+    }
+
+    /**
+     * Schedules what a change to (r, c) can affect, given its current value.
+     * A tent rules out the 3 x 3 block around it and, once it fills its row
+     * or column, the rest of that line, so trees up to two cells away and
+     * the lines through those cells are rechecked. Any other change only
+     * touches the cell's own lines and orthogonal trees.
+     */
+    public void enqueueCell(int r, int c) {
+        int idx = state.cellIndex(r, c);
+        if (state.getCellAt(idx) != GameState.TENT) {
+            push(r);
+            push(colBase + c);
+            for (int d : state.getNeighbours4()) {
+                pushTree(idx + d);
+            }
+            return;
+        }
+        for (int i = Math.max(0, r - 1); i <= Math.min(rows - 1, r + 1); i++) {
+            push(i);
+        }
+        for (int j = Math.max(0, c - 1); j <= Math.min(cols - 1, c + 1); j++) {
+            push(colBase + j);
+        }
+        for (int i = Math.max(0, r - 2); i <= Math.min(rows - 1, r + 2); i++) {
+            for (int j = Math.max(0, c - 2); j <= Math.min(cols - 1, c + 2); j++) {
+                pushTree(state.cellIndex(i, j));
+            }
+        }
+        if (state.getRowUsed(r) >= state.getRowTarget(r)) {
+            for (int j = 0; j < cols; j++) {
+                lineFilled(r, j);
+            }
+        }
+        if (state.getColUsed(c) >= state.getColTarget(c)) {
+            for (int i = 0; i < rows; i++) {
+                lineFilled(i, c);
+            }
+        }
+    }
+
+    // Drops pending work, e.g. after a failed run or a rollback
+    public void clear() {
+        while (size > 0) {
+            queued[stack[--size]] = false;
+        }
+    }
+
+    /**
+     * Drains the worklist, placing every tent and marking every grass cell
+     * the rules force. Returns false
+     * as soon as the board is shown to have no solution; the worklist is
+     * then cleared.
+     */
+    public boolean run() {
+        while (size > 0) {
+            int unit = stack[--size];
+            queued[unit] = false;
+            current = unit;
+            boolean ok;
+            if (unit < colBase)
+                ok = checkLine(unit, 0, 1, cols, state.getRowTarget(unit) - state.getRowUsed(unit));
+            else if (unit < treeBase)
+                ok = checkLine(0, unit - colBase, 0, rows,
+                        state.getColTarget(unit - colBase) - state.getColUsed(unit - colBase));
+            else
+                ok = checkTree(trees.cellOf(unit - treeBase));
+            current = -1;
+            if (!ok) {
+                clear();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Line from (r, c) stepping dc columns (0 or 1), length cells long
+    private boolean checkLine(int r, int c, int dc, int length, int need) {
+        if (need < 0)
+            return false;
+        int start = state.cellIndex(r, c);
+        int step = dc == 1 ? 1 : stride;
+        int capacity = 0;
+        int run = 0;
+        for (int k = 0; k < length; k++) {
+            int idx = start + k * step;
+            if (state.getCellAt(idx) == GameState.EMPTY) {
+                if (isLegalSpot(idx)) {
+                    run++;
+                    continue;
+                }
+                markGrass(idx);
+            }
+            capacity += (run + 1) / 2;
+            run = 0;
+        }
+        capacity += (run + 1) / 2;
+        if (capacity < need)
+            return false;
+        if (capacity > need || need == 0)
+            return true;
+
+        // Every run must be filled to capacity; the empty cells left are
+        // exactly the legal ones
+        int perp = dc == 1 ? stride : 1;
+        for (int k = 0; k < length; k++) {
+            int first = start + k * step;
+            if (state.getCellAt(first) != GameState.EMPTY)
+                continue;
+            run = 1;
+            while (k + run < length && state.getCellAt(first + run * step) == GameState.EMPTY) {
+                run++;
+            }
+            if (run % 2 == 1) {
+                place(first);
+                return checkLine(r, c, dc, length, need - 1);
+            }
+            for (int i = 0; i < run; i += 2) {
+                int a = first + i * step;
+                for (int p = -perp; p <= perp; p += 2 * perp) {
+                    if (state.getCellAt(a + p) == GameState.EMPTY)
+                        markGrass(a + p);
+                    if (state.getCellAt(a + step + p) == GameState.EMPTY)
+                        markGrass(a + step + p);
+                }
+            }
+            k += run;
+        }
+        return true;
+    }
+
+    private boolean checkTree(int tree) {
+        int spots = 0;
+        for (int d : state.getNeighbours4()) {
+            int idx = tree + d;
+            if (state.getCellAt(idx) == GameState.TENT)
+                return true;
+            if (state.getCellAt(idx) == GameState.EMPTY && isLegalSpot(idx))
+                candidates[spots++] = idx;
+        }
+        if (spots == 0)
+            return false;
+        if (spots == 1) {
+            place(candidates[0]);
+            return true;
+        }
+        // One of the spots gets this tree's tent, so whatever touches all of
+        // them stays empty
+        for (int d : state.getNeighbours8()) {
+            int idx = candidates[0] + d;
+            if (state.getCellAt(idx) == GameState.EMPTY && touchesAll(idx, spots))
+                markGrass(idx);
+        }
+        return true;
+    }
+
+    // True if idx is next to (not on) each of the first n candidates
+    private boolean touchesAll(int idx, int n) {
+        int r = state.rowOf(idx);
+        int c = state.colOf(idx);
+        for (int i = 0; i < n; i++) {
+            int dr = Math.abs(state.rowOf(candidates[i]) - r);
+            int dc = Math.abs(state.colOf(candidates[i]) - c);
+            if (dr + dc == 0 || dr > 1 || dc > 1)
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isLegalSpot(int idx) {
+        if (state.getCellAt(idx) != GameState.EMPTY)
+            return false;
+        int r = state.rowOf(idx);
+        int c = state.colOf(idx);
+        if (state.getRowUsed(r) >= state.getRowTarget(r) || state.getColUsed(c) >= state.getColTarget(c))
+            return false;
+        for (int d : state.getNeighbours8()) {
+            if (state.getCellAt(idx + d) == GameState.TENT)
+                return false;
+        }
+        for (int d : state.getNeighbours4()) {
+            if (state.getCellAt(idx + d) == GameState.TREE)
+                return true;
+        }
+        return false;
+    }
+
+    private void markGrass(int idx) {
+        int r = state.rowOf(idx);
+        int c = state.colOf(idx);
+        state.setCell(r, c, GameState.GRASS);
+        enqueueCell(r, c);
+    }
+
+    private void place(int idx) {
+        int r = state.rowOf(idx);
+        int c = state.colOf(idx);
+        state.setCell(r, c, GameState.TENT);
+        enqueueCell(r, c);
+    }
+
+    // (r, c) just stopped being a legal spot because its line is full
+    private void lineFilled(int r, int c) {
+        int idx = state.cellIndex(r, c);
+        if (state.getCellAt(idx) != GameState.EMPTY)
+            return;
+        push(r);
+        push(colBase + c);
+        for (int d : state.getNeighbours4()) {
+            pushTree(idx + d);
+        }
+    }
+
+    private void pushTree(int idx) {
+        int id = trees.idAt(idx);
+        if (id >= 0)
+            push(treeBase + id);
+    }
+
+    private void push(int unit) {
+        if (!queued[unit] && unit != current) {
+            queued[unit] = true;
+            stack[size++] = unit;
+        }
+    }
+}
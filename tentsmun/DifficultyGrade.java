@@ -0,0 +1,63 @@
+/**
+ * How hard a puzzle is to solve without its hidden solution: the lowest
+ * GreedyCPU rule tier that finishes it on its own, and how much branching
+ * DivideConquerCPU needed. Puzzles can be served by {@link #getLevel()}.
+ */
+public final class DifficultyGrade {
+
+    public enum Level {
+        // Row and column counts alone force every tent
+        EASY,
+        // Also needs trees with a single free spot
+        MEDIUM,
+        // Needs the degree heuristic's guesses, or search that never backtracks
+        HARD,
+        // Search has to backtrack
+        EXPERT
+    }
+
+    private final int greedyTier;
+    private final long nodes;
+    private final int maxDepth;
+    private final long backtracks;
+
+    public DifficultyGrade(int greedyTier, long nodes, int maxDepth, long backtracks) {
+        this.greedyTier = greedyTier;
+        this.nodes = nodes;
+        this.maxDepth = maxDepth;
+        this.backtracks = backtracks;
+    }
+
+    // Lowest GreedyCPU.TIER_* that solves the puzzle alone, 0 if none does
+    public int getGreedyTier() {
+        return greedyTier;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public Level getLevel() {
+        if (greedyTier == GreedyCPU.TIER_FORCED)
+            return Level.EASY;
+        if (greedyTier == GreedyCPU.TIER_SINGLE_NEIGHBOR)
+            return Level.MEDIUM;
+        if (greedyTier == GreedyCPU.TIER_DEGREE || backtracks == 0)
+            return Level.HARD;
+        return Level.EXPERT;
+    }
+
+    @Override
+    public String toString() {
+        return getLevel() + " (tier " + greedyTier + ", nodes=" + nodes + ", depth=" + maxDepth + ", backtracks="
+                + backtracks + ")";
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Grades puzzles headlessly. Each puzzle is played on its own GameState:
+ * first by GreedyCPU limited to one rule tier after another, then by
+ * DivideConquerCPU with a SolveStats to count its branching. Nothing here
+ * reads the hidden solution or touches Swing, so whole batches can be
+ * graded in parallel on a ForkJoinPool.
+ */
+public class DifficultyGrader {
+
+    // Puzzles per leaf task
+    private static final int LEAF_SIZE = 16;
+
+    /**
+     * Grades one puzzle.
+     *
+     * @throws IllegalArgumentException if the solver finds no solution
+     */
+    public static DifficultyGrade grade(PuzzleData puzzle) {
+        GameState state = new GameState(puzzle);
+        int greedyTier = 0;
+        for (int tier = GreedyCPU.TIER_FORCED; tier <= GreedyCPU.TIER_DEGREE && greedyTier == 0; tier++) {
+            state.pushCheckpoint();
+            boolean moved = true;
+            while (moved) {
+                moved = GreedyCPU.makeTieredMove(state, tier);
+            }
+            if (state.isPuzzleComplete())
+                greedyTier = tier;
+            state.rollbackToCheckpoint();
+        }
+
+        SolveStats stats = new SolveStats();
+        if (!DivideConquerCPU.solve(state, stats))
+            throw new IllegalArgumentException("Puzzle has no solution: " + puzzle.getId());
+        return new DifficultyGrade(greedyTier, stats.getNodes(), stats.getMaxDepth(), stats.getBacktracks());
+    }
+
+    // The same puzzle carrying its grade
+    public static PuzzleData graded(PuzzleData puzzle) {
+        return puzzle.withGrade(grade(puzzle));
+    }
+
+    /**
+     * Replaces every puzzle in the array with its graded copy, grading them
+     * in parallel on the given pool. Returns when all are graded.
+     */
+    public static void gradeAll(ForkJoinPool pool, PuzzleData[] puzzles) {
+        pool.invoke(new Range(puzzles, 0, puzzles.length));
+    }
+
+    // Each leaf writes only its own slots, so no locking is needed
+    private static class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PuzzleData[] puzzles;
+        private final int from;
+        private final int to;
+
+        Range(PuzzleData[] puzzles, int from, int to) {
+            this.puzzles = puzzles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    puzzles[i] = graded(puzzles[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Range(puzzles, from, mid), new Range(puzzles, mid, to));
+        }
+    }
+}
@@ -1,40 +1,350 @@
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DivideConquerCPU {
 
+    // Branch levels solveParallel forks as tasks; deeper levels run
+    // sequentially inside the task that reached them
+    static final int PARALLEL_DEPTH = 4;
+
     /**
      * Attempts to solve the game state using a Divide and Conquer (Recursive
      * Backtracking) strategy.
-     * 1. Propagates constraints using the Greedy solver.
+     * 1. Propagates constraints with a ConstraintPropagator (the Greedy
+     * solver's safe moves, driven by a worklist).
      * 2. If solved, returns true.
      * 3. If invalid, returns false (backtrack).
      * 4. If stuck but valid, picks a branching move (placing a tent for a
      * constrained tree) and recurses.
+     * Branches share the one board through GameState checkpoints; on failure
+     * the state is rolled back to what the caller passed in.
      */
     public static boolean solve(GameState state) {
-        // 1. Propagate constraints using Greedy logic (Safe moves only)
-        boolean changed = true;
-        while (changed) {
-            changed = GreedyCPU.makeSafeMove(state);
+        return solve(state, new SolveStats());
+    }
+
+    // Same, counting nodes, depth and backtracks into stats
+    public static boolean solve(GameState state, SolveStats stats) {
+        return solve(state, stats, null);
+    }
+
+    /**
+     * Same, skipping boards the table knows to be dead and adding every
+     * board this search proves dead. One table can be reused across solves
+     * and puzzles, since keys are seeded per puzzle. May be null.
+     */
+    public static boolean solve(GameState state, SolveStats stats, TranspositionTable dead) {
+        state.pushCheckpoint();
+        if (new Search(state, stats, null, dead).search(0)) {
+            state.discardCheckpoint();
+            return true;
+        }
+        state.rollbackToCheckpoint();
+        return false;
+    }
+
+    /**
+     * Same result as {@link #solve(GameState, SolveStats)}, but the top
+     * PARALLEL_DEPTH branch levels are forked as tasks on the pool,
+     * each on its own copy of the board. The first task to finish the puzzle
+     * sets a shared flag and every other task stops at its next node. Below
+     * the cutoff a task searches sequentially with checkpoints. On success
+     * the solution is written into state (so callers' checkpoints can still
+     * undo it); on failure state is unchanged.
+     */
+    public static boolean solveParallel(GameState state, ForkJoinPool pool, SolveStats stats) {
+        AtomicBoolean stop = new AtomicBoolean();
+        ParallelSearch root = new ParallelSearch(new GameState(state), 0, stop);
+        GameState solved = pool.invoke(root);
+        stats.add(root.stats);
+        if (solved == null)
+            return false;
+        for (int r = 0; r < state.getRows(); r++) {
+            for (int c = 0; c < state.getCols(); c++) {
+                if (state.getCell(r, c) != solved.getCell(r, c))
+                    state.setCell(r, c, solved.getCell(r, c));
+            }
+        }
+        return true;
+    }
+
+    public static boolean solveParallel(GameState state, ForkJoinPool pool) {
+        return solveParallel(state, pool, new SolveStats());
+    }
+
+    // One node of the forked top of the search tree; owns its board and
+    // returns it solved, or null
+    private static class ParallelSearch extends RecursiveTask<GameState> {
+        private static final long serialVersionUID = 1L;
+
+        private final GameState board;
+        private final int depth;
+        private final AtomicBoolean stop;
+        private final SolveStats stats = new SolveStats();
+
+        ParallelSearch(GameState board, int depth, AtomicBoolean stop) {
+            this.board = board;
+            this.depth = depth;
+            this.stop = stop;
+        }
+
+        @Override
+        protected GameState compute() {
+            Search search = new Search(board, stats, stop, null);
+            if (depth >= PARALLEL_DEPTH)
+                return finish(search.search(depth));
+            if (stop.get())
+                return null;
+            stats.enter(depth);
+            if (!search.propagator.run())
+                return null;
+            if (board.isPuzzleComplete())
+                return finish(true);
+
+            List<Point> moves = pickBranchMoves(board);
+            if (moves == null)
+                return null;
+            List<ParallelSearch> children = new ArrayList<>();
+            if (moves.isEmpty()) {
+                Point spot = findLegalSpot(board);
+                if (spot == null)
+                    return null;
+                children.add(child(spot, GameState.TENT));
+                children.add(child(spot, GameState.GRASS));
+            } else {
+                for (Point move : moves) {
+                    children.add(child(move, GameState.TENT));
+                }
+            }
+
+            GameState solved = null;
+            for (ParallelSearch task : invokeAll(children)) {
+                stats.add(task.stats);
+                GameState result = task.join();
+                if (result != null)
+                    solved = result;
+                else if (!stop.get())
+                    stats.backtrack();
+            }
+            return solved;
+        }
+
+        private ParallelSearch child(Point move, int value) {
+            GameState copy = new GameState(board);
+            copy.setCell(move.x, move.y, value);
+            return new ParallelSearch(copy, depth + 1, stop);
+        }
 
-            // Check for immediate invalid states during propagation
-            if (!isValidState(state)) {
+        // Only the first solution wins; later ones are dropped
+        private GameState finish(boolean solved) {
+            return solved && stop.compareAndSet(false, true) ? board : null;
+        }
+    }
+
+    /**
+     * One backtracking search over one board. Its propagator starts with
+     * every unit scheduled; after that each branch only schedules the cells
+     * it changed, since the board it branched from was already at a
+     * fixpoint. The stop flag and the dead-board table may be null.
+     */
+    private static final class Search {
+        final GameState state;
+        final SolveStats stats;
+        final AtomicBoolean stop;
+        final TranspositionTable dead;
+        final ConstraintPropagator propagator;
+
+        Search(GameState state, SolveStats stats, AtomicBoolean stop, TranspositionTable dead) {
+            this.state = state;
+            this.stats = stats;
+            this.stop = stop;
+            this.dead = dead;
+            this.propagator = new ConstraintPropagator(state);
+            propagator.enqueueAll();
+        }
+
+        // A set stop flag means another task already found a solution, or
+        // the caller gave up
+        boolean search(int depth) {
+            if (stop != null && stop.get())
                 return false;
+            stats.enter(depth);
+            if (dead == null)
+                return expand(depth);
+
+            // Keyed on the board before propagation, which is a function of it
+            long key = state.getHashKey();
+            if (dead.isDead(key))
+                return false;
+            if (expand(depth))
+                return true;
+            // A search cut short by the stop flag proves nothing
+            if (stop == null || !stop.get())
+                dead.markDead(key);
+            return false;
+        }
+
+        private boolean expand(int depth) {
+            // 1. Propagate constraints (safe moves only)
+            if (!propagator.run())
+                return false;
+
+            // 2. Check if the puzzle is completely solved
+            if (state.isPuzzleComplete()) {
+                return true;
             }
+
+            // 3. Divide: Find a branching candidate
+            List<Point> bestMoves = pickBranchMoves(state);
+            if (bestMoves == null)
+                return false;
+
+            if (bestMoves.isEmpty()) {
+                // Every tree touches a tent, yet the puzzle is not complete: some
+                // trees are sharing a tent. Branch on a single legal spot instead,
+                // either a tent goes there or it is ruled out as grass.
+                Point spot = findLegalSpot(state);
+                if (spot == null)
+                    return false;
+                if (tryBranch(spot, GameState.TENT, depth))
+                    return true;
+                return tryBranch(spot, GameState.GRASS, depth);
+            }
+
+            // 4. Conquer: Recursively try each valid move
+            for (Point move : bestMoves) {
+                if (tryBranch(move, GameState.TENT, depth))
+                    return true;
+                // If the branch fails it has already been rolled back, loop to the
+                // next option (Backtrack)
+            }
+
+            return false;
         }
 
-        // 2. Check if the puzzle is completely solved
-        if (state.isPuzzleComplete()) {
-            return true;
+        // Applies one move under a checkpoint and recurses; undone again on failure
+        private boolean tryBranch(Point move, int value, int depth) {
+            state.pushCheckpoint();
+            propagator.clear();
+            set(move, value);
+            if (search(depth + 1)) {
+                state.discardCheckpoint();
+                return true;
+            }
+            state.rollbackToCheckpoint();
+            stats.backtrack();
+            return false;
+        }
+
+        // Same search, but with disjoint branches so no solution is counted
+        // twice: branch i puts a tent on spot i and grass on spots 0..i-1
+        int count(int limit, List<List<Point>> found) {
+            if (dead == null)
+                return countExpand(limit, found);
+            // Only a count of 0 is a proof; any other count may have stopped early
+            long key = state.getHashKey();
+            if (dead.isDead(key))
+                return 0;
+            int count = countExpand(limit, found);
+            if (count == 0)
+                dead.markDead(key);
+            return count;
+        }
+
+        private int countExpand(int limit, List<List<Point>> found) {
+            if (!propagator.run())
+                return 0;
+            if (state.isPuzzleComplete()) {
+                if (found != null)
+                    found.add(collectTents(state));
+                return 1;
+            }
+
+            List<Point> moves = pickBranchMoves(state);
+            if (moves == null)
+                return 0;
+            // Every tree touches a tent: branch on one legal spot, where the
+            // extra branch with all spots grass is the spot ruled out
+            int branches = moves.size();
+            if (moves.isEmpty()) {
+                Point spot = findLegalSpot(state);
+                if (spot == null)
+                    return 0;
+                moves.add(spot);
+                branches = 2;
+            }
+
+            int count = 0;
+            for (int i = 0; i < branches && count < limit; i++) {
+                state.pushCheckpoint();
+                propagator.clear();
+                for (int j = 0; j < i; j++) {
+                    set(moves.get(j), GameState.GRASS);
+                }
+                if (i < moves.size())
+                    set(moves.get(i), GameState.TENT);
+                count += count(limit - count, found);
+                state.rollbackToCheckpoint();
+            }
+            return count;
+        }
+
+        // Branches on the first empty cell at or after from (row * cols +
+        // col), tent then grass, so solutions are met in firstOtherSolution's
+        // order: propagation only settles cells every solution below agrees on
+        boolean firstOther(int from, int depth) {
+            stats.enter(depth);
+            if (!propagator.run())
+                return false;
+            if (state.isPuzzleComplete())
+                return !isHiddenSolution(state);
+
+            int cols = state.getCols();
+            int end = state.getRows() * cols;
+            while (from < end && state.getCell(from / cols, from % cols) != GameState.EMPTY) {
+                from++;
+            }
+            if (from == end)
+                return false;
+            Point cell = new Point(from / cols, from % cols);
+            if (isLegalPlacement(state, cell.x, cell.y) && tryFirstOther(cell, GameState.TENT, from + 1, depth))
+                return true;
+            return tryFirstOther(cell, GameState.GRASS, from + 1, depth);
+        }
+
+        private boolean tryFirstOther(Point cell, int value, int from, int depth) {
+            state.pushCheckpoint();
+            propagator.clear();
+            set(cell, value);
+            if (firstOther(from, depth + 1)) {
+                state.discardCheckpoint();
+                return true;
+            }
+            state.rollbackToCheckpoint();
+            stats.backtrack();
+            return false;
         }
 
-        // 3. Divide: Find a branching candidate
-        // Heuristic: Pick the tree with the fewest valid remaining tent spots (Minimum
-        // Remaining Values)
-        Point bestTree = null;
-        List<Point> bestMoves = null;
+        // A branch move, scheduling only what it affects. Callers clear work
+        // left queued by a pruned sibling first: after the rollback the board
+        // is back at its parent's fixpoint.
+        private void set(Point move, int value) {
+            if (state.getCell(move.x, move.y) == value)
+                return;
+            state.setCell(move.x, move.y, value);
+            propagator.enqueueCell(move.x, move.y);
+        }
+    }
+
+    // Heuristic: Pick the tree with the fewest valid remaining tent spots
+    // (Minimum Remaining Values) and return those spots. Empty if every tree
+    // already touches a tent, null if some tree has no spot left (dead path).
+    private static List<Point> pickBranchMoves(GameState state) {
+        List<Point> bestMoves = new ArrayList<>();
         int minMoves = Integer.MAX_VALUE;
 
         for (Point tree : state.getTrees()) {
@@ -45,73 +355,89 @@ public class DivideConquerCPU {
 
             // If a tree has 0 valid spots but is not satisfied, this path is dead
             if (validSpots.isEmpty()) {
-                return false;
+                return null;
             }
 
             if (validSpots.size() < minMoves) {
                 minMoves = validSpots.size();
-                bestTree = tree;
                 bestMoves = validSpots;
-                // Optimization: If we find a tree with only 1 move, we could technically treat
-                // it as forced,
-                // but GreedyCPU should have caught that.
             }
         }
+        return bestMoves;
+    }
 
-        if (bestTree == null) {
-            // No unsatisfied trees found, but isPuzzleComplete returned false?
-            // This might happen if row/col counts are wrong even if trees are happy.
-            return false;
-        }
+    /**
+     * Counts the solutions reachable from the current board, stopping as soon
+     * as {@code limit} have been found, so {@code countSolutions(s, 2) == 1}
+     * is a uniqueness test. The tent cells of each solution found are added
+     * to {@code found} if it is not null. The board is left as it was.
+     */
+    public static int countSolutions(GameState state, int limit, List<List<Point>> found) {
+        return countSolutions(state, limit, found, null);
+    }
 
-        // 4. Conquer: Recursively try each valid move
-        for (Point move : bestMoves) {
-            // Clone the state to creating an independent branch
-            GameState nextState = new GameState(state);
+    // Same, sharing dead boards with solve through the table (may be null)
+    public static int countSolutions(GameState state, int limit, List<List<Point>> found, TranspositionTable dead) {
+        state.pushCheckpoint();
+        int count = new Search(state, new SolveStats(), null, dead).count(limit, found);
+        state.rollbackToCheckpoint();
+        return count;
+    }
 
-            // Apply the move (Divide)
-            nextState.placeTent(move.x, move.y);
+    /**
+     * The first solution other than the puzzle's hidden one, as its tent
+     * cells, or null if there is none. Solutions are ordered cell by cell in
+     * row-major order, a tent before anything else, so which one comes first
+     * depends only on the board and not on what propagation deduces. The
+     * board is left as it was. Recurses once per branched cell, so it is
+     * meant for boards up to {@link PuzzleGenerator#MAX_UNIQUE_SIDE}.
+     */
+    public static List<Point> firstOtherSolution(GameState state) {
+        state.pushCheckpoint();
+        List<Point> tents = new Search(state, new SolveStats(), null, null).firstOther(0, 0)
+                ? collectTents(state) : null;
+        state.rollbackToCheckpoint();
+        return tents;
+    }
 
-            // Recurse (Conquer)
-            if (solve(nextState)) {
-                // If the recursive call succeeded, we found the solution!
-                // Copy the solution back to the original state object so the UI sees it.
-                state.copyDataFrom(nextState);
-                return true;
+    private static boolean isHiddenSolution(GameState state) {
+        PuzzleData puzzle = state.getPuzzle();
+        for (int r = 0; r < state.getRows(); r++) {
+            for (int c = 0; c < state.getCols(); c++) {
+                if ((state.getCell(r, c) == GameState.TENT) != (puzzle.getSolutionCell(r, c) == GameState.TENT))
+                    return false;
             }
-            // If solve returns false, we discard nextState and loop to the next option
-            // (Backtrack)
         }
-
-        return false;
+        return true;
     }
 
-    // Helper: Check if the current partial state is valid (no broken constraints)
-    // We already know GreedyCPU checks individual move validity, but we double
-    // check global constraints if needed.
-    // For now, relies on GreedyCPU's placement checks and local checks.
-    private static boolean isValidState(GameState state) {
-        int n = state.getSize();
-
-        // Check if any row/col exceeded target
-        for (int i = 0; i < n; i++) {
-            if (state.getRowUsed(i) > state.getRowTarget(i))
-                return false;
-            if (state.getColUsed(i) > state.getColTarget(i))
-                return false;
+    private static List<Point> collectTents(GameState state) {
+        List<Point> tents = new ArrayList<>();
+        for (int r = 0; r < state.getRows(); r++) {
+            for (int c = 0; c < state.getCols(); c++) {
+                if (state.getCell(r, c) == GameState.TENT)
+                    tents.add(new Point(r, c));
+            }
         }
+        return tents;
+    }
 
-        // Note: We don't check for "less than" target here because the board is
-        // partially filled.
-        return true;
+    private static Point findLegalSpot(GameState state) {
+        int rows = state.getRows();
+        int cols = state.getCols();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (isLegalPlacement(state, r, c))
+                    return new Point(r, c);
+            }
+        }
+        return null;
     }
 
     private static boolean isTreeSatisfied(GameState state, Point tree) {
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = tree.x + d[0];
-            int nc = tree.y + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TENT) {
+        int idx = state.cellIndex(tree.x, tree.y);
+        for (int d : state.getNeighbours4()) {
+            if (state.getCellAt(idx + d) == GameState.TENT) {
                 return true;
             }
         }
@@ -120,11 +446,11 @@ public class DivideConquerCPU {
 
     private static List<Point> getValidTentSpots(GameState state, Point tree) {
         List<Point> spots = new ArrayList<>();
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = tree.x + d[0];
-            int nc = tree.y + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.EMPTY) {
+        int idx = state.cellIndex(tree.x, tree.y);
+        for (int d : state.getNeighbours4()) {
+            if (state.getCellAt(idx + d) == GameState.EMPTY) {
+                int nr = state.rowOf(idx + d);
+                int nc = state.colOf(idx + d);
                 // We must check if placing a tent here would be valid
                 // We can reuse the logic from GreedyCPU essentially, but we need access to it.
                 // Since GreedyCPU logic is private/static, we might duplicate or expose it.
@@ -142,27 +468,36 @@ public class DivideConquerCPU {
     // Finds a solution from the current state and applies only one tent placement
     // (the next logical step)
     public static boolean makeMove(GameState state) {
-        if (state.isPuzzleComplete())
+        Point move = findMove(state, null);
+        if (move == null)
             return false;
+        state.placeTent(move.x, move.y);
+        return true;
+    }
 
-        // 1. Working on a clone to find the full solution
-        GameState clone = new GameState(state);
-        boolean solved = solve(clone);
+    /**
+     * The tent {@link #makeMove} would place, without placing it: null if
+     * the board is complete, has no solution, or stop was set before the
+     * search finished. The board is left as it was, so a caller can search
+     * a copy off the UI thread and cancel through stop, which may be null.
+     */
+    public static Point findMove(GameState state, AtomicBoolean stop) {
+        if (state.isPuzzleComplete())
+            return null;
 
-        if (!solved)
-            return false;
+        // 1. Solve in place under a checkpoint, remember the tents, roll back
+        state.pushCheckpoint();
+        boolean solved = new Search(state, new SolveStats(), stop, null).search(0);
+
+        List<Point> solvedTents = solved ? collectTents(state) : new ArrayList<>();
+        state.rollbackToCheckpoint();
 
         // 2. Find a difference between current state and solved state
-        int n = state.getSize();
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
-                if (state.getCell(r, c) == GameState.EMPTY && clone.getCell(r, c) == GameState.TENT) {
-                    state.placeTent(r, c);
-                    return true;
-                }
-            }
+        for (Point p : solvedTents) {
+            if (state.getCell(p.x, p.y) == GameState.EMPTY)
+                return p;
         }
-        return false;
+        return null;
     }
 
     // Re-implementing basic legality check similar to GreedyCPU's isValidTentSpot
@@ -175,17 +510,8 @@ public class DivideConquerCPU {
             return false;
 
         // Adjacency check
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr == 0 && dc == 0)
-                    continue;
-                int nr = r + dr;
-                int nc = c + dc;
-                if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TENT) {
-                    return false;
-                }
-            }
-        }
+        if (state.hasAdjacentTent(r, c))
+            return false;
 
         // Row/Col limits check
         if (state.getRowUsed(r) >= state.getRowTarget(r))
@@ -197,16 +523,6 @@ public class DivideConquerCPU {
         // The rule is "Tent must be attached to a tree".
         // In our generator/logic, we usually ensure 1-1 mapping.
         // For a valid move, it must be next to *some* tree.
-        boolean hasTree = false;
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TREE) {
-                hasTree = true;
-                break;
-            }
-        }
-        return hasTree;
+        return state.hasAdjacentTree(r, c);
     }
 }
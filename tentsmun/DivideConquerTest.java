@@ -1,8 +1,23 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class DivideConquerTest {
     public static void main(String[] args) {
         testCopy();
         testSolve();
         testMakeMove();
+        testCountSolutions();
+        testFirstOtherSolution();
+        testParallelSolve();
+        testTranspositionTable();
+        testPropagator();
+        testEliminationRules();
     }
 
     private static void testCopy() {
@@ -17,6 +32,8 @@ public class DivideConquerTest {
             throw new RuntimeException("Size mismatch");
         if (s1.getCell(0, 0) != s2.getCell(0, 0))
             throw new RuntimeException("Board Content mismatch");
+        if (s1.getPuzzle() != s2.getPuzzle())
+            throw new RuntimeException("Copy should share the immutable puzzle data");
 
         // Modify s2 and ensure s1 is not changed
         s2.setCell(1, 1, GameState.TENT);
@@ -66,6 +83,299 @@ public class DivideConquerTest {
             if (placed > 36)
                 throw new RuntimeException("Too many moves - infinite loop?");
         }
+
+        // A set stop flag ends the search at once and leaves the board alone
+        GameState fresh = new GameState(6);
+        fresh.generateSolvablePuzzle();
+        long key = fresh.getHashKey();
+        if (DivideConquerCPU.findMove(fresh, new AtomicBoolean(true)) != null || fresh.getHashKey() != key)
+            throw new RuntimeException("Cancelled findMove returned a move or changed the board");
         System.out.println("makeMove test passed.");
     }
+
+    private static void testCountSolutions() {
+        System.out.println("Testing DivideConquerCPU countSolutions...");
+        SplittableRandom rand = new SplittableRandom(7);
+        int ambiguous = 0;
+        for (int i = 0; i < 200; i++) {
+            GameState s = new GameState(10);
+            s.install(new PuzzleGenerator(10, 10).generate(rand));
+            List<List<Point>> found = new ArrayList<>();
+            int count = DivideConquerCPU.countSolutions(s, 2, found);
+            if (count < 1 || count > 2 || found.size() != count)
+                throw new RuntimeException("Bad solution count " + count);
+            if (s.getTentCount() != 0)
+                throw new RuntimeException("countSolutions changed the board");
+            for (List<Point> tents : found) {
+                GameState check = new GameState(s.getPuzzle());
+                for (Point t : tents) {
+                    check.setCell(t.x, t.y, GameState.TENT);
+                }
+                if (!check.isPuzzleComplete())
+                    throw new RuntimeException("Counted a non-solution");
+            }
+            if (count == 2) {
+                ambiguous++;
+                if (new HashSet<>(found.get(0)).equals(new HashSet<>(found.get(1))))
+                    throw new RuntimeException("Same solution counted twice");
+            }
+            // A unique puzzle must stay unique with a higher limit
+            if (count == 1 && DivideConquerCPU.countSolutions(s, 5, null) != 1)
+                throw new RuntimeException("Early exit hid extra solutions");
+        }
+        if (ambiguous == 0)
+            throw new RuntimeException("No ambiguous puzzle was seen");
+        System.out.println("countSolutions test passed (" + ambiguous + " of 200 ambiguous).");
+    }
+
+    // Must be the first of all solutions in row-major order, a tent first
+    private static void testFirstOtherSolution() {
+        System.out.println("Testing DivideConquerCPU firstOtherSolution...");
+        SplittableRandom rand = new SplittableRandom(17);
+        int ambiguous = 0;
+        for (int i = 0; i < 150; i++) {
+            GameState s = new GameState(new PuzzleGenerator(8, 8, 11 + i % 4).generate(rand));
+            List<List<Point>> found = new ArrayList<>();
+            if (DivideConquerCPU.countSolutions(s, 1000, found) >= 1000)
+                throw new RuntimeException("Too many solutions to check");
+            List<Integer> hidden = new ArrayList<>();
+            for (int cell = 0; cell < 64; cell++) {
+                if (s.getPuzzle().getSolutionCell(cell / 8, cell % 8) == GameState.TENT)
+                    hidden.add(cell);
+            }
+            List<Integer> expected = null;
+            for (List<Point> tents : found) {
+                List<Integer> cells = rowMajor(tents);
+                if (!cells.equals(hidden) && (expected == null || before(cells, expected)))
+                    expected = cells;
+            }
+            List<Point> other = DivideConquerCPU.firstOtherSolution(s);
+            if (s.getTentCount() != 0)
+                throw new RuntimeException("firstOtherSolution changed the board");
+            if (expected == null ? other != null : other == null || !rowMajor(other).equals(expected))
+                throw new RuntimeException("Not the first other solution on puzzle " + i);
+            if (expected != null)
+                ambiguous++;
+        }
+        if (ambiguous == 0)
+            throw new RuntimeException("No ambiguous puzzle was seen");
+        System.out.println("firstOtherSolution test passed (" + ambiguous + " of 150 ambiguous).");
+    }
+
+    // Tent cells as sorted row-major indexes on an 8-wide board
+    private static List<Integer> rowMajor(List<Point> tents) {
+        List<Integer> cells = new ArrayList<>();
+        for (Point t : tents) {
+            cells.add(t.x * 8 + t.y);
+        }
+        cells.sort(null);
+        return cells;
+    }
+
+    // Same tent count, so the first differing index is a tent only a has
+    private static boolean before(List<Integer> a, List<Integer> b) {
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).equals(b.get(i)))
+                return a.get(i) < b.get(i);
+        }
+        return false;
+    }
+
+    private static void testParallelSolve() {
+        System.out.println("Testing DivideConquerCPU solveParallel...");
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SplittableRandom rand = new SplittableRandom(21);
+            long backtracks = 0;
+            int forked = 0;
+            for (int i = 0; i < 16; i++) {
+                // Non-unique and fairly dense, so the search has to branch
+                int n = 16 + i % 4;
+                PuzzleData puzzle = new PuzzleGenerator(n, n, PuzzleGenerator.tentsForDensity(n, n, 0.12)).generate(rand);
+                GameState sequential = new GameState(puzzle);
+                SolveStats expected = new SolveStats();
+                if (!DivideConquerCPU.solve(sequential, expected))
+                    throw new RuntimeException("Sequential solver failed on puzzle " + i);
+                if (expected.getMaxDepth() > DivideConquerCPU.PARALLEL_DEPTH)
+                    forked++;
+
+                // One worker runs the tasks in sequential search order, so the
+                // node counts only match if the winner's stop flag ends every
+                // sibling task before it searches
+                GameState s = new GameState(puzzle);
+                SolveStats stats = new SolveStats();
+                if (!DivideConquerCPU.solveParallel(s, one, stats) || !s.isPuzzleComplete())
+                    throw new RuntimeException("Single-worker parallel solver failed on puzzle " + i);
+                if (stats.getNodes() != expected.getNodes())
+                    throw new RuntimeException("Sibling tasks kept searching: " + stats.getNodes() + " nodes, sequential "
+                            + expected.getNodes());
+                for (int r = 0; r < n; r++) {
+                    for (int c = 0; c < n; c++) {
+                        if (s.getCell(r, c) != sequential.getCell(r, c))
+                            throw new RuntimeException("Parallel solve differs from sequential at " + r + "," + c);
+                    }
+                }
+                backtracks += stats.getBacktracks();
+
+                s = new GameState(puzzle);
+                if (!DivideConquerCPU.solveParallel(s, pool, new SolveStats()) || !s.isPuzzleComplete())
+                    throw new RuntimeException("Parallel solver failed on puzzle " + i);
+            }
+            if (backtracks == 0 || forked == 0)
+                throw new RuntimeException("Test puzzles never branched past the parallel levels");
+
+            // A tent in a row that needs none: no solution, board untouched
+            GameState s = new GameState(new PuzzleId(10, 10, 11, false, 3).generate());
+            int row = 0;
+            while (s.getRowTarget(row) != 0) {
+                row++;
+            }
+            int col = s.getCell(row, 0) == GameState.TREE ? 1 : 0;
+            s.setCell(row, col, GameState.TENT);
+            if (DivideConquerCPU.solveParallel(s, pool) || s.getTentCount() != 1 || s.getCell(row, col) != GameState.TENT)
+                throw new RuntimeException("Unsolvable board was solved or changed");
+            System.out.println("solveParallel test passed (" + backtracks + " backtracks in 16 puzzles).");
+        } finally {
+            one.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    private static void testTranspositionTable() {
+        System.out.println("Testing transposition table...");
+        // 16 bytes hold one two-way bucket: the third key pushes out the first
+        TranspositionTable tiny = new TranspositionTable(16);
+        if (tiny.getCapacity() != 2 || tiny.getMemoryBytes() != 16)
+            throw new RuntimeException("Table ignored its memory cap");
+        tiny.markDead(5);
+        tiny.markDead(0);
+        tiny.markDead(5);
+        if (!tiny.isDead(5) || !tiny.isDead(0) || tiny.isDead(7) || tiny.getSize() != 2)
+            throw new RuntimeException("Table lost a stored key");
+        tiny.markDead(9);
+        if (tiny.isDead(5) || !tiny.isDead(9) || !tiny.isDead(0) || tiny.getEvictions() != 1)
+            throw new RuntimeException("Table did not evict the oldest key");
+        if (tiny.getHits() != 4 || tiny.getMisses() != 2 || tiny.getStores() != 3)
+            throw new RuntimeException("Wrong table counters: " + tiny);
+
+        // Reused across puzzles, the table must never change an answer
+        TranspositionTable table = new TranspositionTable(1 << 20);
+        SplittableRandom rand = new SplittableRandom(11);
+        PuzzleGenerator generator = new PuzzleGenerator(15, 15, 27);
+        for (int i = 0; i < 40; i++) {
+            PuzzleData puzzle = generator.generate(rand);
+            GameState plain = new GameState(puzzle);
+            GameState cached = new GameState(puzzle);
+            if (!DivideConquerCPU.solve(cached, new SolveStats(), table) || !cached.isPuzzleComplete())
+                throw new RuntimeException("Solver failed with a transposition table");
+            if (DivideConquerCPU.countSolutions(plain, 3, null) != DivideConquerCPU.countSolutions(plain, 3, null, table))
+                throw new RuntimeException("Transposition table changed a solution count");
+        }
+        if (table.getStores() == 0 || table.getSize() == 0)
+            throw new RuntimeException("No dead board was recorded");
+
+        // Same trees, one tent moved: a board dead under the first targets
+        // is live under the second, so the keys must differ
+        int e = GameState.EMPTY, t = GameState.TREE, x = GameState.TENT;
+        List<Point> trees = Arrays.asList(new Point(0, 3), new Point(3, 2), new Point(3, 4));
+        PuzzleData first = new PuzzleData(5, new int[][] {
+                { e, e, e, t, x }, { e, e, e, e, e }, { e, e, x, e, e }, { e, e, t, e, t }, { e, e, e, e, x } }, trees);
+        PuzzleData second = new PuzzleData(5, new int[][] {
+                { e, e, x, t, e }, { e, e, e, e, e }, { e, e, x, e, e }, { e, e, t, e, t }, { e, e, e, e, x } }, trees);
+        TranspositionTable shared = new TranspositionTable(1 << 16);
+        DivideConquerCPU.countSolutions(new GameState(first), 10, null, shared);
+        int expected = DivideConquerCPU.countSolutions(new GameState(second), 10, null);
+        if (expected == 0 || DivideConquerCPU.countSolutions(new GameState(second), 10, null, shared) != expected)
+            throw new RuntimeException("Dead boards of one puzzle leaked into another with other targets");
+        System.out.println("Transposition table test passed (" + table + ").");
+    }
+
+    // The worklist must reach the same fixpoint as looping makeSafeMove
+    private static void testPropagator() {
+        System.out.println("Testing ConstraintPropagator...");
+        SplittableRandom rand = new SplittableRandom(13);
+        int placed = 0;
+        for (int i = 0; i < 300; i++) {
+            int n = 8 + i % 10;
+            PuzzleData puzzle = new PuzzleGenerator(n, n, n + 1 + i % 7).generate(rand);
+            GameState greedy = new GameState(puzzle);
+            while (GreedyCPU.makeSafeMove(greedy)) {
+                placed++;
+            }
+            GameState worklist = new GameState(puzzle);
+            ConstraintPropagator propagator = new ConstraintPropagator(worklist);
+            propagator.enqueueAll();
+            if (!propagator.run())
+                throw new RuntimeException("Propagator rejected a solvable puzzle");
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    if (greedy.getCell(r, c) == GameState.TENT && worklist.getCell(r, c) != GameState.TENT)
+                        throw new RuntimeException("Propagator missed a forced tent at " + r + "," + c);
+                }
+            }
+        }
+
+        // On unique puzzles every deduction must agree with the solution
+        int grass = 0;
+        int solved = 0;
+        for (int i = 0; i < 40; i++) {
+            PuzzleData puzzle = new PuzzleId(10, 10, 11, true, i).generate();
+            GameState s = new GameState(puzzle);
+            ConstraintPropagator propagator = new ConstraintPropagator(s);
+            propagator.enqueueAll();
+            if (!propagator.run())
+                throw new RuntimeException("Propagator rejected unique puzzle " + i);
+            for (int r = 0; r < 10; r++) {
+                for (int c = 0; c < 10; c++) {
+                    int cell = s.getCell(r, c);
+                    boolean tent = puzzle.getSolutionCell(r, c) == GameState.TENT;
+                    if (cell == GameState.TENT && !tent || cell == GameState.GRASS && tent)
+                        throw new RuntimeException("Wrong deduction at " + r + "," + c + " of puzzle " + i);
+                    if (cell == GameState.GRASS)
+                        grass++;
+                }
+            }
+            if (s.isPuzzleComplete())
+                solved++;
+        }
+        if (grass == 0)
+            throw new RuntimeException("Propagator never ruled out a cell");
+
+        // A row with more tents than its target is caught straight away
+        GameState s = new GameState(new PuzzleId(10, 10, 11, false, 3).generate());
+        int row = 0;
+        while (s.getRowTarget(row) != 0) {
+            row++;
+        }
+        s.setCell(row, s.getCell(row, 0) == GameState.TREE ? 1 : 0, GameState.TENT);
+        ConstraintPropagator propagator = new ConstraintPropagator(s);
+        propagator.enqueueAll();
+        if (propagator.run())
+            throw new RuntimeException("Propagator accepted a row over its target");
+        System.out.println("Propagator test passed (" + placed + " forced tents matched, " + solved
+                + "/40 unique puzzles solved outright).");
+    }
+
+    // Grass, capacity and pair rules must keep the search small on dense
+    // boards that still need it. With tent placement alone (a single-spot
+    // tree, a line with as many legal spots as tents to go) these 20 boards
+    // took 3936 backtracks; the limits leave room for heuristic changes
+    private static void testEliminationRules() {
+        System.out.println("Testing search effort on dense boards...");
+        SplittableRandom rand = new SplittableRandom(25);
+        SolveStats stats = new SolveStats();
+        for (int i = 0; i < 20; i++) {
+            PuzzleData puzzle = new PuzzleGenerator(16, 16, PuzzleGenerator.tentsForDensity(16, 16, 0.2)).generate(rand);
+            GameState s = new GameState(puzzle);
+            if (!DivideConquerCPU.solve(s, stats) || !s.isPuzzleComplete())
+                throw new RuntimeException("Solver failed on puzzle " + i);
+        }
+        // 695 nodes and 535 backtracks when written
+        if (stats.getBacktracks() == 0 || stats.getBacktracks() > 1000 || stats.getNodes() > 1500)
+            throw new RuntimeException("Dense boards took " + stats.getNodes() + " nodes, " + stats.getBacktracks()
+                    + " backtracks");
+        System.out.println("Dense board test passed (" + stats.getNodes() + " nodes, " + stats.getBacktracks()
+                + " backtracks).");
+    }
 }
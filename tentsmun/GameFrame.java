@@ -1,11 +1,47 @@
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.*;
 
 public class GameFrame extends JFrame {
 
     private GameState gameState;
     private BoardPanel boardPanel;
+    private JScrollPane boardScroll;
     private JLabel statusLabel;
+    private JButton btnDivideConquer;
+
+    // Undo history, newest first. Snapshots are O(1) to take and only hold
+    // the rows changed after them, so one per move is cheap.
+    private static final int MAX_UNDO = 500;
+    private final Deque<BoardSnapshot> undoHistory = new ArrayDeque<>();
+
+    // Pre-built puzzles (see PuzzleBank.main); sizes it lacks are generated
+    private static final Path BANK_FILE = Paths.get("puzzles.bank");
+    private final PuzzleBank bank = openBank();
+    // Puzzles generated ahead in the background for sizes the bank lacks
+    private static final int BUFFERED_PER_SIZE = 4;
+    private final PuzzleBuffer buffer = new PuzzleBuffer(BUFFERED_PER_SIZE, true);
+    private static final int[] SIZES = { 6, 8, 10, 15, 20, 30, 50 };
+    // Tree densities offered besides the classic N + 1 trees; these puzzles
+    // are not checked for uniqueness, which gets slow on dense large boards
+    private static final String[] DENSITY_NAMES = { "Classic (N + 1 trees)", "Medium (12% trees)", "Dense (20% trees)" };
+    private static final double[] DENSITIES = { 0, 0.12, 0.20 };
+
+    // Large and dense boards can take the solver and the generator minutes,
+    // so both run on SwingWorkers. Each new game request bumps gameRequest,
+    // and a worker whose request is stale drops its result.
+    private static final String DIVIDE_CONQUER_LABEL = "Divide & Conquer Move";
+    private int gameRequest;
+    // Set while a Divide & Conquer search runs; setting it stops the search
+    private AtomicBoolean solverStop;
 
     public GameFrame() {
         setTitle("Tents & Trees");
@@ -14,24 +50,75 @@ public class GameFrame extends JFrame {
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
 
+        for (int size : SIZES) {
+            buffer.prefetch(size, size);
+        }
         initNewGame(8);
     }
 
+    private static PuzzleBank openBank() {
+        if (!Files.exists(BANK_FILE))
+            return null;
+        try {
+            return PuzzleBank.open(BANK_FILE);
+        } catch (IOException e) {
+            System.err.println("Ignoring puzzle bank: " + e.getMessage());
+            return null;
+        }
+    }
+
     private void initNewGame(int size) {
-        gameState = new GameState(size);
-        gameState.generateSolvablePuzzle();
+        gameRequest++;
+        int banked = bank == null ? 0 : bank.getCount(size, size);
+        if (banked > 0)
+            startGame(new GameState(bank.get(size, size, ThreadLocalRandom.current().nextInt(banked))));
+        else
+            startGame(new GameState(buffer.take(size, size)));
+    }
 
-        if (boardPanel != null)
-            remove(boardPanel);
+    private void initNewGame(PuzzleId id) {
+        int request = ++gameRequest;
+        updateStatus("Generating " + id.getRows() + " x " + id.getCols() + "...");
+        new SwingWorker<PuzzleData, Void>() {
+            @Override
+            protected PuzzleData doInBackground() {
+                return id.generate();
+            }
+
+            @Override
+            protected void done() {
+                if (request != gameRequest)
+                    return;
+                try {
+                    startGame(new GameState(get()));
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    updateStatus("Playing...");
+                    JOptionPane.showMessageDialog(GameFrame.this, "Cannot load puzzle: " + cause.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void startGame(GameState state) {
+        if (solverStop != null)
+            solverStop.set(true);
+        gameState = state;
+        undoHistory.clear();
+
+        if (boardScroll != null)
+            remove(boardScroll);
 
         boardPanel = new BoardPanel(gameState, this);
-        add(boardPanel, BorderLayout.CENTER);
+        boardScroll = new JScrollPane(boardPanel);
+        boardScroll.setBorder(null);
+        add(boardScroll, BorderLayout.CENTER);
 
         if (statusLabel == null) {
             add(createSidePanel(), BorderLayout.WEST);
         }
 
-        updateStatus("Place N+1 tents!");
+        updateStatus("Place " + gameState.getTrees().size() + " tents!");
         revalidate();
         repaint();
     }
@@ -59,10 +146,18 @@ public class GameFrame extends JFrame {
         btnSolve.setAlignmentX(Component.CENTER_ALIGNMENT);
         btnSolve.addActionListener(e -> doSolveAll());
 
-        JButton btnDivideConquer = new JButton("Divide & Conquer Move");
+        btnDivideConquer = new JButton(DIVIDE_CONQUER_LABEL);
         btnDivideConquer.setAlignmentX(Component.CENTER_ALIGNMENT);
         btnDivideConquer.addActionListener(e -> doDivideConquerMove());
 
+        JButton btnUndo = new JButton("Undo");
+        btnUndo.setAlignmentX(Component.CENTER_ALIGNMENT);
+        btnUndo.addActionListener(e -> undoMove());
+
+        JButton btnPuzzleId = new JButton("Puzzle ID");
+        btnPuzzleId.setAlignmentX(Component.CENTER_ALIGNMENT);
+        btnPuzzleId.addActionListener(e -> askPuzzleId());
+
         JButton btnSafe = new JButton("Instructions");
         btnSafe.setAlignmentX(Component.CENTER_ALIGNMENT);
         btnSafe.addActionListener(e -> showInstructions());
@@ -82,6 +177,10 @@ public class GameFrame extends JFrame {
         p.add(Box.createVerticalStrut(10));
         p.add(btnDivideConquer);
         p.add(Box.createVerticalStrut(10));
+        p.add(btnUndo);
+        p.add(Box.createVerticalStrut(10));
+        p.add(btnPuzzleId);
+        p.add(Box.createVerticalStrut(10));
         p.add(btnSafe);
         p.add(Box.createVerticalStrut(20));
         p.add(statusLabel);
@@ -94,8 +193,10 @@ public class GameFrame extends JFrame {
             JOptionPane.showMessageDialog(this, "Puzzle already complete!");
             return;
         }
+        BoardSnapshot before = gameState.snapshot();
         boolean moved = GreedyCPU.makeGreedyMove(gameState);
         if (moved) {
+            pushUndoPoint(before);
             boardPanel.repaint();
             checkAutoCompletion();
         } else {
@@ -104,40 +205,136 @@ public class GameFrame extends JFrame {
     }
 
     private void doSolveAll() {
+        BoardSnapshot before = gameState.snapshot();
+        long key = gameState.getHashKey();
         GreedyCPU.solveAll(gameState);
+        // Nothing to undo if the greedy rules found no move
+        if (gameState.getHashKey() != key)
+            pushUndoPoint(before);
         boardPanel.repaint();
         checkAutoCompletion();
     }
 
+    // Searches a copy of the board in the background; clicking again while
+    // it runs stops the search
     private void doDivideConquerMove() {
+        if (solverStop != null) {
+            solverStop.set(true);
+            return;
+        }
         if (gameState.isPuzzleComplete()) {
             JOptionPane.showMessageDialog(this, "Puzzle already complete!");
             return;
         }
 
-        // Apply a single D&C step
-        boolean moved = DivideConquerCPU.makeMove(gameState);
+        GameState board = gameState;
+        long key = board.getHashKey();
+        GameState copy = new GameState(board);
+        AtomicBoolean stop = new AtomicBoolean();
+        solverStop = stop;
+        btnDivideConquer.setText("Stop Search");
+        updateStatus("Searching...");
+        new SwingWorker<Point, Void>() {
+            @Override
+            protected Point doInBackground() {
+                return DivideConquerCPU.findMove(copy, stop);
+            }
 
-        boardPanel.repaint();
-        if (moved) {
-            checkAutoCompletion();
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "Divide & Conquer could not find a logical move from this state.\n(The board might be unsolvable in this state.)");
+            @Override
+            protected void done() {
+                solverStop = null;
+                btnDivideConquer.setText(DIVIDE_CONQUER_LABEL);
+                if (gameState != board)
+                    return;
+                Point move;
+                try {
+                    move = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    move = null;
+                }
+                if (stop.get()) {
+                    updateStatus("Search stopped.");
+                    return;
+                }
+                // The player kept playing during the search
+                if (board.getHashKey() != key) {
+                    updateStatus("Board changed, search again.");
+                    return;
+                }
+                if (move == null) {
+                    updateStatus("Playing...");
+                    JOptionPane.showMessageDialog(GameFrame.this,
+                            "Divide & Conquer could not find a logical move from this state.\n(The board might be unsolvable in this state.)");
+                    return;
+                }
+                recordUndoPoint();
+                board.placeTent(move.x, move.y);
+                boardPanel.repaint();
+                checkAutoCompletion();
+            }
+        }.execute();
+    }
+
+    // Called before every change to the board so it can be undone
+    public void recordUndoPoint() {
+        pushUndoPoint(gameState.snapshot());
+    }
+
+    private void pushUndoPoint(BoardSnapshot s) {
+        undoHistory.push(s);
+        if (undoHistory.size() > MAX_UNDO)
+            undoHistory.removeLast();
+    }
+
+    private void undoMove() {
+        if (undoHistory.isEmpty()) {
+            updateStatus("Nothing to undo.");
+            return;
         }
+        gameState.restore(undoHistory.pop());
+        boardPanel.repaint();
+        updateStatus("Playing...");
     }
 
     private void askSizeAndRestart() {
-        String[] opts = { "6 x 6", "8 x 8", "10 x 10" };
-        int n = JOptionPane.showOptionDialog(this, "Select Size", "New Game",
-                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, opts, opts[1]);
-
-        if (n == 0)
-            initNewGame(6);
-        else if (n == 1)
-            initNewGame(8);
-        else if (n == 2)
-            initNewGame(10);
+        String[] sizeNames = new String[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            sizeNames[i] = SIZES[i] + " x " + SIZES[i];
+        }
+        JComboBox<String> sizeBox = new JComboBox<>(sizeNames);
+        sizeBox.setSelectedIndex(1);
+        JComboBox<String> densityBox = new JComboBox<>(DENSITY_NAMES);
+
+        JPanel p = new JPanel(new GridLayout(2, 2, 10, 5));
+        p.add(new JLabel("Size:"));
+        p.add(sizeBox);
+        p.add(new JLabel("Trees:"));
+        p.add(densityBox);
+        int choice = JOptionPane.showConfirmDialog(this, p, "New Game", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.QUESTION_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION)
+            return;
+
+        int size = SIZES[sizeBox.getSelectedIndex()];
+        int density = densityBox.getSelectedIndex();
+        if (density == 0)
+            initNewGame(size);
+        else
+            initNewGame(PuzzleId.random(size, size, DENSITIES[density], false));
+    }
+
+    // Shows the current puzzle's id; entering another id loads that puzzle
+    private void askPuzzleId() {
+        PuzzleId current = gameState.getPuzzleId();
+        String text = (String) JOptionPane.showInputDialog(this, "Share this id, or enter one to load:", "Puzzle ID",
+                JOptionPane.PLAIN_MESSAGE, null, null, current == null ? "" : current.toString());
+        if (text == null || text.trim().isEmpty() || (current != null && text.trim().equals(current.toString())))
+            return;
+        try {
+            initNewGame(PuzzleId.parse(text));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            JOptionPane.showMessageDialog(this, "Cannot load puzzle: " + e.getMessage());
+        }
     }
 
     private void checkGame() {
@@ -1,8 +1,7 @@
 import java.awt.Point;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
 public class GameState {
 
@@ -10,47 +9,165 @@ public class GameState {
     public static final int TREE = 1;
     public static final int TENT = 2;
     public static final int GRASS = 3;
+    // Value of the permanent ring around the board in the flat cell grid
+    public static final int BORDER = 4;
 
-    private final int n;
-    private final int[][] board;
-    private final int[][] solution;
-    private final List<Point> trees;
+    private final int rows;
+    private final int cols;
 
-    private final int[] rowTarget;
-    private final int[] colTarget;
+    // Play board as a flat byte grid of (rows + 2) x (cols + 2) cells with a
+    // BORDER ring, so neighbour scans are plain index offsets with no bounds
+    // checks
+    private final int stride;
+    private final byte[] cells;
+    private final int[] neighbours4;
+    private final int[] neighbours8;
+
+    // Solution, trees, targets and tree index; immutable and shared by every
+    // copy of this state
+    private PuzzleData puzzle;
 
     private final int[] rowUsed;
     private final int[] colUsed;
 
+    // Bit-plane mirror of board, used for all neighbourhood tests
+    private final BitBoard bits;
+
+    // Undo trail: each entry packs (cell index << 2 | previous value).
+    // Entries are only recorded while at least one checkpoint is open.
+    private int[] trail = new int[64];
+    private int trailSize;
+    private int[] checkpoints = new int[16];
+    private int checkpointCount;
+
+    // Copy-on-write snapshots: the newest snapshot, the epoch each row was
+    // last saved in, and a token for the current history (see BoardSnapshot)
+    private BoardSnapshot newestSnapshot;
+    private final int[] rowSavedEpoch;
+    private int snapshotEpoch;
+    private Object history = new Object();
+
+    // Last published read view, and the rows changed since it was built
+    private volatile BoardView publishedView;
+    private long viewVersion;
+    private final boolean[] viewRowDirty;
+    private final int[] viewDirtyRows;
+    private int viewDirtyCount;
+
+    // Cell index -> tent slot in tentCells, holding the current tents only.
+    // The matching tree index lives in puzzle.
+    private final CellIdMap tentIds = new CellIdMap();
+    private int[] tentCells = new int[16];
+    private int tentCount;
+
+    // Live maximum tree/tent matching, repaired on every tent add or remove
+    private final TentMatching matching;
+
+    // Incremental completion state: rows/cols whose count is off target, and
+    // touching tent pairs. Together with the matching this makes
+    // isPuzzleComplete() an O(1) read.
+    private int mismatchedLines;
+    private int touchingPairs;
+
+    // Last report from getStatus(); null means dirty
+    private PuzzleStatus cachedStatus;
+
+    // Zobrist position key, XOR of key(cell, value) over all non-empty cells.
+    // Keys are derived from the puzzle's seed on the fly, so there is no key table.
+    private long hashKey;
+
+    private GenerationStats generationStats;
+
     public GameState(int n) {
-        this.n = n;
-        this.board = new int[n][n];
-        this.solution = new int[n][n];
-        this.trees = new ArrayList<>();
-        this.rowTarget = new int[n];
-        this.colTarget = new int[n];
-        this.rowUsed = new int[n];
-        this.colUsed = new int[n];
+        this(n, n);
+    }
+
+    public GameState(int rows, int cols) {
+        this(PuzzleData.empty(rows, cols));
+    }
+
+    // Fresh, unplayed state for an existing puzzle
+    public GameState(PuzzleData puzzle) {
+        this.rows = puzzle.getRows();
+        this.cols = puzzle.getCols();
+        this.stride = cols + 2;
+        this.cells = new byte[(rows + 2) * stride];
+        this.neighbours4 = new int[] { stride, -stride, 1, -1 };
+        this.neighbours8 = new int[] { -stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1 };
+        this.rowUsed = new int[rows];
+        this.colUsed = new int[cols];
+        this.bits = new BitBoard(rows, cols);
+        this.rowSavedEpoch = new int[rows];
+        this.viewRowDirty = new boolean[rows];
+        this.viewDirtyRows = new int[rows];
+        Arrays.fill(cells, (byte) BORDER);
+        this.matching = new TentMatching(neighbours4, tentIds, tentCells);
+        install(puzzle);
     }
 
+    // Side of a square board; rectangular boards use getRows() and getCols()
     public int getSize() {
-        return n;
+        if (rows != cols)
+            throw new IllegalStateException("Board is " + rows + "x" + cols + ", not square");
+        return rows;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
     }
 
     public int getCell(int r, int c) {
-        return board[r][c];
+        return cells[cellIndex(r, c)];
+    }
+
+    // Index of (r, c) in the flat grid; r and c may be -1, rows or cols for the border
+    public int cellIndex(int r, int c) {
+        return (r + 1) * stride + c + 1;
+    }
+
+    public int rowOf(int index) {
+        return index / stride - 1;
+    }
+
+    public int colOf(int index) {
+        return index % stride - 1;
+    }
+
+    // Cell value by flat index, BORDER on the ring around the board
+    public int getCellAt(int index) {
+        return cells[index];
+    }
+
+    // Index offsets of the 4 orthogonal neighbours, in the order the solvers
+    // have always scanned them (down, up, right, left). The array is shared,
+    // callers must not modify it.
+    public int[] getNeighbours4() {
+        return neighbours4;
+    }
+
+    // Index offsets of all 8 neighbours; shared, do not modify
+    public int[] getNeighbours8() {
+        return neighbours8;
+    }
+
+    public PuzzleData getPuzzle() {
+        return puzzle;
     }
 
     public int getSolutionCell(int r, int c) {
-        return solution[r][c];
+        return puzzle.getSolutionCell(r, c);
     }
 
     public int getRowTarget(int r) {
-        return rowTarget[r];
+        return puzzle.getRowTarget(r);
     }
 
     public int getColTarget(int c) {
-        return colTarget[c];
+        return puzzle.getColTarget(c);
     }
 
     public int getRowUsed(int r) {
@@ -61,29 +178,72 @@ public class GameState {
         return colUsed[c];
     }
 
+    // Trees in id order; the list is shared and unmodifiable
     public List<Point> getTrees() {
-        return trees;
+        return puzzle.getTrees();
+    }
+
+    // Index of the tree at (r, c) in getTrees(), or -1
+    public int getTreeIdAt(int r, int c) {
+        return puzzle.treeIndex().idAt(cellIndex(r, c));
+    }
+
+    // Slot of the tent at (r, c) among the current tents, or -1. Slots are
+    // dense but not stable: removing a tent moves the last one into its slot.
+    public int getTentIdAt(int r, int c) {
+        return tentIds.get(cellIndex(r, c));
+    }
+
+    public int getTentCount() {
+        return tentCount;
+    }
+
+    /**
+     * 64-bit Zobrist key of the current board, updated on every mutation.
+     * Equal boards of the same puzzle always have equal keys.
+     */
+    public long getHashKey() {
+        return hashKey;
+    }
+
+    public long getZobristSeed() {
+        return puzzle.getZobristSeed();
+    }
+
+    // Recomputes the key from scratch, for checking the incremental value
+    public long computeHashKey() {
+        long h = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                h ^= zobristKey(cellIndex(r, c), getCell(r, c));
+            }
+        }
+        return h;
+    }
+
+    private long zobristKey(int cell, int value) {
+        if (value == EMPTY)
+            return 0L;
+        return PuzzleData.mix64(puzzle.getZobristSeed() + (cell * 4L + value) * 0x9E3779B97F4A7C15L);
     }
 
     public void resetBoard() {
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
-                if (board[r][c] == TENT || board[r][c] == GRASS) {
-                    board[r][c] = EMPTY;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int v = getCell(r, c);
+                if (v == TENT || v == GRASS) {
+                    writeCell(r, c, EMPTY);
                 }
             }
         }
-        recalcCounts();
     }
 
     private void recalcCounts() {
-        for (int i = 0; i < n; i++) {
-            rowUsed[i] = 0;
-            colUsed[i] = 0;
-        }
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
-                if (board[r][c] == TENT) {
+        Arrays.fill(rowUsed, 0);
+        Arrays.fill(colUsed, 0);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (getCell(r, c) == TENT) {
                     rowUsed[r]++;
                     colUsed[c]++;
                 }
@@ -91,237 +251,444 @@ public class GameState {
         }
     }
 
-    public void generateSolvablePuzzle() {
-        while (true) {
-            if (tryGenerate()) {
-                break;
+    // Debug-only cross-check of the incremental counters, run under -ea
+    private boolean countsConsistent() {
+        int[] inRow = new int[rows];
+        int[] inCol = new int[cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (getCell(r, c) == TENT) {
+                    inRow[r]++;
+                    inCol[c]++;
+                }
             }
         }
+        return Arrays.equals(inRow, rowUsed) && Arrays.equals(inCol, colUsed);
     }
 
-    private boolean tryGenerate() {
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
-                solution[r][c] = EMPTY;
-                board[r][c] = EMPTY;
-            }
-            rowTarget[r] = 0;
-            colTarget[r] = 0;
-        }
-        trees.clear();
-
-        int targetCount = n + 1;
-        List<Point> placedTents = new ArrayList<>();
-        Random rand = new Random();
+    /**
+     * Replaces the puzzle with a freshly generated one. Generation is
+     * constructive with a bounded budget, see PuzzleGenerator.
+     */
+    public void generateSolvablePuzzle() {
+        generatePuzzle(PuzzleId.random(rows, cols, false));
+    }
 
-        List<Point> allPositions = new ArrayList<>();
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
-                allPositions.add(new Point(r, c));
-            }
-        }
-        Collections.shuffle(allPositions, rand);
-
-        for (Point p : allPositions) {
-            if (placedTents.size() >= targetCount)
-                break;
-
-            int r = p.x;
-            int c = p.y;
-
-            if (solution[r][c] != EMPTY)
-                continue;
-            if (hasNeighborTent(solution, r, c))
-                continue;
-
-            List<Point> validTreeSpots = new ArrayList<>();
-            int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-            for (int[] d : dirs) {
-                int tr = r + d[0];
-                int tc = c + d[1];
-                if (inBounds(tr, tc) && solution[tr][tc] == EMPTY) {
-                    validTreeSpots.add(new Point(tr, tc));
-                }
-            }
+    /**
+     * Like {@link #generateSolvablePuzzle()}, but the hidden solution is the
+     * only one, so every correct player solution matches getSolutionCell.
+     */
+    public void generateUniquePuzzle() {
+        generatePuzzle(PuzzleId.random(rows, cols, true));
+    }
 
-            if (validTreeSpots.isEmpty())
-                continue;
+    // Rebuilds the exact puzzle named by id; see getPuzzleId()
+    public void generatePuzzle(PuzzleId id) {
+        PuzzleGenerator generator = new PuzzleGenerator(id.getRows(), id.getCols(), id.getTents());
+        install(id.generate(generator));
+        generationStats = generator.getLastStats();
+    }
 
-            Point treePos = validTreeSpots.get(rand.nextInt(validTreeSpots.size()));
+    // Id that regenerates the current puzzle, or null if it was not generated
+    public PuzzleId getPuzzleId() {
+        return puzzle.getId();
+    }
 
-            solution[r][c] = TENT;
-            solution[treePos.x][treePos.y] = TREE;
-            placedTents.add(new Point(r, c));
-            trees.add(treePos);
-        }
+    // Counters from the last generate call, or null
+    public GenerationStats getGenerationStats() {
+        return generationStats;
+    }
 
-        if (placedTents.size() < targetCount) {
-            return false;
+    /**
+     * Switches this state to another puzzle of the same size and clears the
+     * board down to its trees. Open checkpoints are dropped.
+     */
+    public void install(PuzzleData puzzle) {
+        if (puzzle.getRows() != rows || puzzle.getCols() != cols)
+            throw new IllegalArgumentException("Puzzle size " + puzzle.getRows() + "x" + puzzle.getCols()
+                    + " does not match board size " + rows + "x" + cols);
+        this.puzzle = puzzle;
+        trailSize = 0;
+        checkpointCount = 0;
+        startNewHistory();
+
+        tentIds.clear();
+        tentCount = 0;
+        cachedStatus = null;
+        matching.setTrees(puzzle.treeIndex());
+        matching.clear();
+        touchingPairs = 0;
+        mismatchedLines = 0;
+        for (int r = 0; r < rows; r++) {
+            if (puzzle.getRowTarget(r) != 0)
+                mismatchedLines++;
         }
-
-        for (Point t : placedTents) {
-            rowTarget[t.x]++;
-            colTarget[t.y]++;
+        for (int c = 0; c < cols; c++) {
+            if (puzzle.getColTarget(c) != 0)
+                mismatchedLines++;
         }
 
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
-                if (solution[r][c] == TREE) {
-                    board[r][c] = TREE;
+        bits.clear();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (puzzle.getSolutionCell(r, c) == TREE) {
+                    cells[cellIndex(r, c)] = TREE;
+                    bits.set(r, c, TREE);
                 } else {
-                    board[r][c] = EMPTY;
+                    cells[cellIndex(r, c)] = EMPTY;
                 }
             }
         }
+        hashKey = computeHashKey();
 
         recalcCounts();
-        return true;
+        markAllRowsDirty();
+        publish();
     }
 
-    private boolean hasNeighborTent(int[][] grid, int r, int c) {
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr == 0 && dc == 0)
-                    continue;
-                int nr = r + dr;
-                int nc = c + dc;
-                if (inBounds(nr, nc) && grid[nr][nc] == TENT) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    public boolean inBounds(int r, int c) {
+        return r >= 0 && r < rows && c >= 0 && c < cols;
     }
 
-    public boolean inBounds(int r, int c) {
-        return r >= 0 && r < n && c >= 0 && c < n;
+    // True if any of the 8 cells around (r, c) holds a tent
+    public boolean hasAdjacentTent(int r, int c) {
+        return bits.hasAdjacentTent(r, c);
+    }
+
+    // True if a tree sits directly above, below, left or right of (r, c)
+    public boolean hasAdjacentTree(int r, int c) {
+        return bits.hasOrthogonalTree(r, c);
     }
 
     public void setCell(int r, int c, int value) {
         if (!inBounds(r, c))
             return;
-        if (board[r][c] == TREE)
+        if (getCell(r, c) == TREE)
             return;
-        board[r][c] = value;
-        recalcCounts();
+        writeCell(r, c, value);
+    }
+
+    // Single mutation path for play cells: keeps counters, bit-planes and the
+    // undo trail in step with board
+    private void writeCell(int r, int c, int value) {
+        int old = getCell(r, c);
+        if (old == value)
+            return;
+        if (checkpointCount > 0)
+            record(cellIndex(r, c), old);
+        applyCell(r, c, old, value);
+    }
+
+    private void applyCell(int r, int c, int old, int value) {
+        int i = cellIndex(r, c);
+        if (newestSnapshot != null && rowSavedEpoch[r] != snapshotEpoch)
+            saveRow(r);
+        if (!viewRowDirty[r])
+            markRowDirty(r);
+        cachedStatus = null;
+        cells[i] = (byte) value;
+        hashKey ^= zobristKey(i, old) ^ zobristKey(i, value);
+        bits.set(r, c, value);
+        // Counters move by delta; a full rescan would make every click O(n^2)
+        if (old == TENT && value != TENT) {
+            adjustLineCounts(r, c, -1);
+            touchingPairs -= bits.countAdjacentTents(r, c);
+            removeTentId(i);
+        } else if (old != TENT && value == TENT) {
+            adjustLineCounts(r, c, 1);
+            touchingPairs += bits.countAdjacentTents(r, c);
+            if (tentCount == tentCells.length) {
+                tentCells = Arrays.copyOf(tentCells, tentCells.length * 2);
+                matching.setTentCells(tentCells);
+            }
+            tentIds.put(i, tentCount);
+            tentCells[tentCount] = i;
+            matching.tentAdded(tentCount++);
+        }
+        assert countsConsistent() : "row/col counters out of sync after writeCell(" + r + ", " + c + ")";
+    }
+
+    private void adjustLineCounts(int r, int c, int delta) {
+        int rowTarget = puzzle.getRowTarget(r);
+        int colTarget = puzzle.getColTarget(c);
+        if (rowUsed[r] == rowTarget)
+            mismatchedLines++;
+        rowUsed[r] += delta;
+        if (rowUsed[r] == rowTarget)
+            mismatchedLines--;
+
+        if (colUsed[c] == colTarget)
+            mismatchedLines++;
+        colUsed[c] += delta;
+        if (colUsed[c] == colTarget)
+            mismatchedLines--;
+    }
+
+    private void removeTentId(int cell) {
+        int id = tentIds.get(cell);
+        int lastCell = tentCells[--tentCount];
+        tentCells[id] = lastCell;
+        tentIds.put(lastCell, id);
+        tentIds.remove(cell);
+        matching.tentRemoved(id, tentCount);
     }
 
     public boolean placeTent(int r, int c) {
         if (!inBounds(r, c))
             return false;
-        if (board[r][c] == TREE || board[r][c] == TENT)
+        int current = getCell(r, c);
+        if (current == TREE || current == TENT)
             return false;
         setCell(r, c, TENT);
         return true;
     }
 
-    public boolean isPuzzleComplete() {
-        if (!checkConstraints())
-            return false;
-        return hasValidMatching();
+    /**
+     * Opens a checkpoint. Every mutation after this is recorded so that
+     * {@link #rollbackToCheckpoint()} can restore the board in place, which lets
+     * backtracking search reuse one GameState instead of cloning per branch.
+     * Checkpoints nest.
+     */
+    public void pushCheckpoint() {
+        if (checkpointCount == checkpoints.length)
+            checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+        checkpoints[checkpointCount++] = trailSize;
     }
 
-    public String checkPuzzleStatus() {
-        StringBuilder sb = new StringBuilder();
-        for (int r = 0; r < n; r++) {
-            if (rowUsed[r] != rowTarget[r])
-                sb.append("Row ").append(r).append(" mismatch. ");
+    // Undoes every mutation since the most recent checkpoint and closes it
+    public void rollbackToCheckpoint() {
+        int mark = checkpoints[--checkpointCount];
+        while (trailSize > mark) {
+            int entry = trail[--trailSize];
+            int cell = entry >>> 2;
+            int r = rowOf(cell);
+            int c = colOf(cell);
+            applyCell(r, c, cells[cell], entry & 3);
         }
-        for (int c = 0; c < n; c++) {
-            if (colUsed[c] != colTarget[c])
-                sb.append("Col ").append(c).append(" mismatch. ");
-        }
-        if (hasAdjacencyViolation())
-            sb.append("Tents are touching. ");
-        if (!hasValidMatching())
-            sb.append("Trees/Tents not matched properly.");
+    }
 
-        if (sb.length() == 0)
-            return "Correct!";
-        return sb.toString();
+    // Closes the most recent checkpoint but keeps its mutations; an enclosing
+    // checkpoint can still roll them back
+    public void discardCheckpoint() {
+        checkpointCount--;
+        if (checkpointCount == 0)
+            trailSize = 0;
     }
 
-    private boolean checkConstraints() {
-        for (int i = 0; i < n; i++) {
-            if (rowUsed[i] != rowTarget[i])
-                return false;
-            if (colUsed[i] != colTarget[i])
-                return false;
-        }
-        if (hasAdjacencyViolation())
-            return false;
-        return true;
+    public int getCheckpointDepth() {
+        return checkpointCount;
     }
 
-    private boolean hasAdjacencyViolation() {
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
-                if (board[r][c] == TENT) {
-                    if (hasNeighborTent(board, r, c))
-                        return true;
+    private void record(int cell, int old) {
+        if (trailSize == trail.length)
+            trail = Arrays.copyOf(trail, trailSize * 2);
+        trail[trailSize++] = (cell << 2) | old;
+    }
+
+    /**
+     * Takes an O(1) snapshot of the board. Until the next snapshot, the first
+     * change to each row saves that row once; older snapshots share the saved
+     * rows. Use checkpoints for strictly nested search, snapshots for
+     * positions that are kept around (undo history, look-ahead).
+     */
+    public BoardSnapshot snapshot() {
+        snapshotEpoch++;
+        BoardSnapshot s = new BoardSnapshot(history);
+        if (newestSnapshot != null)
+            newestSnapshot.next = s;
+        newestSnapshot = s;
+        return s;
+    }
+
+    /**
+     * Brings the board back to the position of {@code s}, touching only rows
+     * changed since it was taken. Snapshots taken after {@code s} are
+     * discarded and can no longer be restored, so older snapshots kept for
+     * undo do not hold on to them; {@code s} itself can be restored again.
+     */
+    public void restore(BoardSnapshot s) {
+        if (s.history != history || s.discarded)
+            throw new IllegalArgumentException("Snapshot belongs to another puzzle or state, or was discarded");
+        // The first image of a row at or after s is its content at s. Collect
+        // before writing, since the writes below save rows into the newest
+        // snapshot.
+        int[] changed = new int[rows];
+        byte[][] images = new byte[rows][];
+        boolean[] seen = new boolean[rows];
+        int found = 0;
+        for (BoardSnapshot q = s; q != null && found < rows; q = q.next) {
+            for (int k = 0; k < q.count; k++) {
+                int r = q.rows[k];
+                if (!seen[r]) {
+                    seen[r] = true;
+                    changed[found] = r;
+                    images[found++] = q.images[k];
                 }
             }
         }
-        return false;
+        for (int k = 0; k < found; k++) {
+            int r = changed[k];
+            for (int c = 0; c < cols; c++) {
+                writeCell(r, c, images[k][c]);
+            }
+        }
+
+        // The board is at s again: s goes back to being the newest snapshot,
+        // holding exactly the rows it had saved
+        for (BoardSnapshot q = s.next; q != null;) {
+            BoardSnapshot later = q.next;
+            q.next = null;
+            q.discarded = true;
+            q = later;
+        }
+        s.next = null;
+        newestSnapshot = s;
+        snapshotEpoch++;
+        for (int k = 0; k < s.count; k++) {
+            rowSavedEpoch[s.rows[k]] = snapshotEpoch;
+        }
     }
 
-    private boolean hasValidMatching() {
-        List<Point> currentTents = new ArrayList<>();
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
-                if (board[r][c] == TENT)
-                    currentTents.add(new Point(r, c));
-            }
+    private void saveRow(int r) {
+        int start = cellIndex(r, 0);
+        newestSnapshot.save(r, Arrays.copyOfRange(cells, start, start + cols));
+        rowSavedEpoch[r] = snapshotEpoch;
+    }
+
+    // Bulk overwrites bypass applyCell, so snapshots taken before them cannot
+    // be restored
+    private void startNewHistory() {
+        history = new Object();
+        newestSnapshot = null;
+    }
+
+    /**
+     * Publishes the current board as a new immutable {@link BoardView} and
+     * returns it. Only rows changed since the last publish are copied; the
+     * rest are shared with the previous view. Returns the previous view
+     * unchanged if nothing moved. Must be called from the thread that
+     * mutates this state.
+     */
+    public BoardView publish() {
+        BoardView last = publishedView;
+        if (viewDirtyCount == 0 && last != null)
+            return last;
+        long[][] packed = last == null ? new long[rows][] : last.rows().clone();
+        for (int k = 0; k < viewDirtyCount; k++) {
+            int r = viewDirtyRows[k];
+            packed[r] = PackedGrid.pack(cells, cellIndex(r, 0), cols);
+            viewRowDirty[r] = false;
         }
+        viewDirtyCount = 0;
+        BoardView view = new BoardView(++viewVersion, cols, puzzle, packed, rowUsed.clone(), colUsed.clone(), hashKey);
+        publishedView = view;
+        return view;
+    }
 
-        if (currentTents.size() != trees.size())
-            return false;
+    /**
+     * Latest published view. Safe to call from any thread without locking;
+     * the view may lag the board until the owner calls {@link #publish()}.
+     */
+    public BoardView getPublishedView() {
+        return publishedView;
+    }
 
-        for (Point t : currentTents) {
-            boolean adj = false;
-            int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-            for (int[] d : dirs) {
-                int nr = t.x + d[0];
-                int nc = t.y + d[1];
-                if (inBounds(nr, nc) && board[nr][nc] == TREE) {
-                    adj = true;
-                    break;
-                }
-            }
-            if (!adj)
-                return false;
+    private void markRowDirty(int r) {
+        viewRowDirty[r] = true;
+        viewDirtyRows[viewDirtyCount++] = r;
+    }
+
+    private void markAllRowsDirty() {
+        Arrays.fill(viewRowDirty, false);
+        viewDirtyCount = 0;
+        for (int r = 0; r < rows; r++) {
+            markRowDirty(r);
         }
+    }
 
-        return match(currentTents, new boolean[trees.size()], 0);
+    // O(1): every count and adjacency rule is tracked incrementally, and a
+    // perfect live matching implies every tent sits next to its own tree
+    public boolean isPuzzleComplete() {
+        if (!checkConstraints())
+            return false;
+        return hasValidMatching();
     }
 
-    private boolean match(List<Point> tents, boolean[] treeUsed, int tentIdx) {
-        if (tentIdx == tents.size())
-            return true;
+    public int getMatchedCount() {
+        return matching.size();
+    }
 
-        Point t = tents.get(tentIdx);
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = t.x + d[0];
-            int nc = t.y + d[1];
+    public String checkPuzzleStatus() {
+        return getStatus().toMessage();
+    }
 
-            int treeIdx = -1;
-            for (int i = 0; i < trees.size(); i++) {
-                Point tree = trees.get(i);
-                if (tree.x == nr && tree.y == nc) {
-                    treeIdx = i;
-                    break;
+    /**
+     * Structured report of everything currently wrong with the board. Built
+     * from the incremental counters and the live matching, and cached until
+     * the next mutation, so repeated queries between moves are free.
+     */
+    public PuzzleStatus getStatus() {
+        if (cachedStatus == null)
+            cachedStatus = buildStatus();
+        return cachedStatus;
+    }
+
+    private PuzzleStatus buildStatus() {
+        List<Integer> badRows = new ArrayList<>();
+        List<Integer> badCols = new ArrayList<>();
+        if (mismatchedLines > 0) {
+            for (int i = 0; i < rows; i++) {
+                if (rowUsed[i] != puzzle.getRowTarget(i))
+                    badRows.add(i);
+            }
+            for (int i = 0; i < cols; i++) {
+                if (colUsed[i] != puzzle.getColTarget(i))
+                    badCols.add(i);
+            }
+        }
+
+        // Each pair is reported once, from the tent that comes first in
+        // row-major order
+        List<PuzzleStatus.TentPair> pairs = new ArrayList<>();
+        List<Point> strayTents = new ArrayList<>();
+        int[][] forward = { { 0, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 } };
+        for (int i = 0; i < tentCount; i++) {
+            int r = rowOf(tentCells[i]);
+            int c = colOf(tentCells[i]);
+            if (touchingPairs > 0) {
+                for (int[] d : forward) {
+                    int nr = r + d[0];
+                    int nc = c + d[1];
+                    if (inBounds(nr, nc) && bits.isTent(nr, nc))
+                        pairs.add(new PuzzleStatus.TentPair(new Point(r, c), new Point(nr, nc)));
                 }
             }
+            if (matching.getTreeOf(i) == -1)
+                strayTents.add(new Point(r, c));
+        }
 
-            if (treeIdx != -1 && !treeUsed[treeIdx]) {
-                treeUsed[treeIdx] = true;
-                if (match(tents, treeUsed, tentIdx + 1))
-                    return true;
-                treeUsed[treeIdx] = false;
+        List<Point> lonelyTrees = new ArrayList<>();
+        List<Point> trees = puzzle.getTrees();
+        if (matching.size() < trees.size()) {
+            for (int t = 0; t < trees.size(); t++) {
+                if (matching.getTentOf(t) == -1)
+                    lonelyTrees.add(trees.get(t));
             }
         }
-        return false;
+        return new PuzzleStatus(badRows, badCols, pairs, lonelyTrees, strayTents);
+    }
+
+    private boolean checkConstraints() {
+        return mismatchedLines == 0 && !hasAdjacencyViolation();
+    }
+
+    private boolean hasAdjacencyViolation() {
+        assert (touchingPairs > 0) == bits.hasTouchingTents() : "touching pair count out of sync";
+        return touchingPairs > 0;
+    }
+
+    private boolean hasValidMatching() {
+        return tentCount == puzzle.getTreeCount() && matching.size() == tentCount;
     }
 
     /*
@@ -357,27 +724,54 @@ public class GameState {
 
      */
     public GameState(GameState other) {
-        this.n = other.n;
-        this.board = new int[n][n];
-        this.solution = new int[n][n]; // solution is static/read-only usually, but we copy for safety
-        this.trees = new ArrayList<>(other.trees); // Shallow copy of points is fine since Point is immutable-ish here
-        this.rowTarget = new int[n];
-        this.colTarget = new int[n];
-        this.rowUsed = new int[n];
-        this.colUsed = new int[n];
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.stride = cols + 2;
+        this.cells = new byte[(rows + 2) * stride];
+        this.neighbours4 = new int[] { stride, -stride, 1, -1 };
+        this.neighbours8 = new int[] { -stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1 };
+        this.rowUsed = new int[rows];
+        this.colUsed = new int[cols];
+        this.bits = new BitBoard(rows, cols);
+        this.rowSavedEpoch = new int[rows];
+        this.viewRowDirty = new boolean[rows];
+        this.viewDirtyRows = new int[rows];
+        this.matching = new TentMatching(neighbours4, tentIds, tentCells);
 
         copyDataFrom(other);
     }
 
+    // Overwrites the whole play state; open checkpoints of this state are dropped.
+    // The puzzle itself is immutable and shared, so only play state is copied.
     public void copyDataFrom(GameState other) {
-        for(int r=0; r<n; r++) {
-            System.arraycopy(other.board[r], 0, this.board[r], 0, n);
-            System.arraycopy(other.solution[r], 0, this.solution[r], 0, n);
+        trailSize = 0;
+        checkpointCount = 0;
+        startNewHistory();
+        this.puzzle = other.puzzle;
+        System.arraycopy(other.cells, 0, this.cells, 0, cells.length);
+        System.arraycopy(other.rowUsed, 0, this.rowUsed, 0, rows);
+        System.arraycopy(other.colUsed, 0, this.colUsed, 0, cols);
+        this.bits.copyFrom(other.bits);
+        this.tentIds.copyFrom(other.tentIds);
+        if (tentCells.length < other.tentCount) {
+            tentCells = new int[other.tentCells.length];
+            matching.setTentCells(tentCells);
+        }
+        System.arraycopy(other.tentCells, 0, this.tentCells, 0, other.tentCount);
+        this.tentCount = other.tentCount;
+        this.matching.copyFrom(other.matching);
+        this.mismatchedLines = other.mismatchedLines;
+        this.touchingPairs = other.touchingPairs;
+        this.cachedStatus = other.cachedStatus;
+        this.hashKey = other.hashKey;
+        // Views are immutable, so the other state's view is ours too, along
+        // with whatever it had not published yet
+        this.publishedView = other.publishedView;
+        this.viewVersion = other.viewVersion;
+        this.viewDirtyCount = 0;
+        Arrays.fill(viewRowDirty, false);
+        for (int k = 0; k < other.viewDirtyCount; k++) {
+            markRowDirty(other.viewDirtyRows[k]);
         }
-        System.arraycopy(other.rowTarget, 0, this.rowTarget, 0, n);
-        System.arraycopy(other.colTarget, 0, this.colTarget, 0, n);
-        System.arraycopy(other.rowUsed, 0, this.rowUsed, 0, n);
-        System.arraycopy(other.colUsed, 0, this.colUsed, 0, n);
-        // trees list is final and structural, assumed constant for a puzzle instance
     }
 }
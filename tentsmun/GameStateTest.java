@@ -0,0 +1,628 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class GameStateTest {
+    public static void main(String[] args) throws InterruptedException {
+        testBitBoardNeighbours();
+        testBitBoardTouching();
+        testIncrementalCounts();
+        testUndoTrail();
+        testSnapshots();
+        testReadViews();
+        testRectangularBoards();
+        testHashKey();
+        testMatching();
+        testLiveMatching();
+        testCellIdMap();
+        testStatusReport();
+    }
+
+    private static void testBitBoardNeighbours() {
+        System.out.println("Testing BitBoard neighbourhood queries...");
+        Random rand = new Random(1);
+        // 70 columns puts a word boundary inside every row
+        int n = 70;
+        for (int iter = 0; iter < 20; iter++) {
+            int[][] grid = randomGrid(n, rand);
+            BitBoard bits = toBits(grid);
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    if (bits.hasAdjacentTent(r, c) != naiveAdjacentTent(grid, r, c))
+                        throw new RuntimeException("hasAdjacentTent mismatch at " + r + "," + c);
+                    if (bits.hasOrthogonalTree(r, c) != naiveOrthogonalTree(grid, r, c))
+                        throw new RuntimeException("hasOrthogonalTree mismatch at " + r + "," + c);
+                }
+            }
+        }
+        System.out.println("BitBoard neighbourhood test passed.");
+    }
+
+    private static void testBitBoardTouching() {
+        System.out.println("Testing BitBoard touching tents...");
+        Random rand = new Random(2);
+        int n = 130;
+        for (int iter = 0; iter < 200; iter++) {
+            int[][] grid = new int[n][n];
+            // Sparse enough that roughly half the boards have no touching pair
+            int count = 5 + rand.nextInt(60);
+            for (int i = 0; i < count; i++) {
+                grid[rand.nextInt(n)][rand.nextInt(n)] = GameState.TENT;
+            }
+            boolean expected = false;
+            for (int r = 0; r < n && !expected; r++) {
+                for (int c = 0; c < n; c++) {
+                    if (grid[r][c] == GameState.TENT && naiveAdjacentTent(grid, r, c)) {
+                        expected = true;
+                        break;
+                    }
+                }
+            }
+            if (toBits(grid).hasTouchingTents() != expected)
+                throw new RuntimeException("hasTouchingTents mismatch on iteration " + iter);
+        }
+        System.out.println("BitBoard touching test passed.");
+    }
+
+    private static void testIncrementalCounts() {
+        System.out.println("Testing incremental row/col counters...");
+        Random rand = new Random(3);
+        GameState s = new GameState(12);
+        s.generateSolvablePuzzle();
+        int n = s.getSize();
+        for (int i = 0; i < 5000; i++) {
+            int r = rand.nextInt(n);
+            int c = rand.nextInt(n);
+            int v = rand.nextInt(4);
+            if (v == GameState.TREE)
+                v = GameState.TENT;
+            s.setCell(r, c, v);
+            if (i % 97 == 0)
+                s.resetBoard();
+        }
+        for (int r = 0; r < n; r++) {
+            int rowTents = 0;
+            int colTents = 0;
+            for (int c = 0; c < n; c++) {
+                if (s.getCell(r, c) == GameState.TENT)
+                    rowTents++;
+                if (s.getCell(c, r) == GameState.TENT)
+                    colTents++;
+            }
+            if (rowTents != s.getRowUsed(r) || colTents != s.getColUsed(r))
+                throw new RuntimeException("Counter mismatch at index " + r);
+        }
+        boolean[] slotSeen = new boolean[s.getTentCount()];
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                int id = s.getTentIdAt(r, c);
+                if ((id >= 0) != (s.getCell(r, c) == GameState.TENT))
+                    throw new RuntimeException("Tent index mismatch at " + r + "," + c);
+                if (id >= 0) {
+                    if (slotSeen[id])
+                        throw new RuntimeException("Tent slot " + id + " used twice");
+                    slotSeen[id] = true;
+                }
+                int treeId = s.getTreeIdAt(r, c);
+                if ((treeId >= 0) != (s.getCell(r, c) == GameState.TREE))
+                    throw new RuntimeException("Tree index mismatch at " + r + "," + c);
+            }
+        }
+        System.out.println("Incremental counter test passed.");
+    }
+
+    private static void testUndoTrail() {
+        System.out.println("Testing checkpoint rollback...");
+        Random rand = new Random(4);
+        GameState s = new GameState(10);
+        s.generateSolvablePuzzle();
+        s.placeTent(0, 0);
+        GameState before = new GameState(s);
+
+        s.pushCheckpoint();
+        randomEdits(s, rand, 40);
+        s.pushCheckpoint();
+        randomEdits(s, rand, 40);
+        GameState middle = new GameState(s);
+        s.pushCheckpoint();
+        randomEdits(s, rand, 40);
+        s.resetBoard();
+
+        s.rollbackToCheckpoint();
+        assertSameBoard(middle, s, "inner rollback");
+        s.discardCheckpoint();
+        s.rollbackToCheckpoint();
+        assertSameBoard(before, s, "outer rollback");
+        if (s.getCheckpointDepth() != 0)
+            throw new RuntimeException("Checkpoint stack not empty");
+        System.out.println("Checkpoint rollback test passed.");
+    }
+
+    private static void testSnapshots() {
+        System.out.println("Testing copy-on-write snapshots...");
+        Random rand = new Random(8);
+        GameState s = new GameState(12);
+        s.generateSolvablePuzzle();
+
+        List<BoardSnapshot> snaps = new ArrayList<>();
+        List<GameState> copies = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            snaps.add(s.snapshot());
+            copies.add(new GameState(s));
+            randomEdits(s, rand, 1 + rand.nextInt(6));
+        }
+        // Only rows that actually changed are ever saved
+        int saved = 0;
+        for (BoardSnapshot snap : snaps) {
+            saved += snap.getSavedRowCount();
+        }
+        if (saved > 30 * 6)
+            throw new RuntimeException("Snapshots saved more rows than were edited: " + saved);
+
+        // Undo-style use: go back one to three positions, edit, take more.
+        // A restore discards the snapshots after it, and only those
+        for (int i = 0; i < 300; i++) {
+            if (snaps.size() > 1 && rand.nextBoolean()) {
+                int k = snaps.size() - 1 - rand.nextInt(Math.min(3, snaps.size()));
+                BoardSnapshot newest = snaps.get(snaps.size() - 1);
+                s.restore(snaps.get(k));
+                assertSameBoard(copies.get(k), s, "restore of snapshot " + k);
+                if (s.getHashKey() != copies.get(k).getHashKey())
+                    throw new RuntimeException("Restore left a different key");
+                snaps.subList(k + 1, snaps.size()).clear();
+                copies.subList(k + 1, copies.size()).clear();
+                if (newest != snaps.get(k)) {
+                    try {
+                        s.restore(newest);
+                        throw new RuntimeException("Snapshot after a restored one was restored");
+                    } catch (IllegalArgumentException expected) {
+                    }
+                }
+                randomEdits(s, rand, 5);
+            } else {
+                snaps.add(s.snapshot());
+                copies.add(new GameState(s));
+                randomEdits(s, rand, 1 + rand.nextInt(6));
+            }
+        }
+        // Discarded snapshots are unlinked, so kept ones cannot hold them
+        int linked = 0;
+        for (BoardSnapshot q = snaps.get(0); q != null; q = q.next) {
+            linked++;
+        }
+        if (linked != snaps.size())
+            throw new RuntimeException(linked + " snapshots linked, " + snaps.size() + " kept");
+
+        s.generateSolvablePuzzle();
+        try {
+            s.restore(snaps.get(0));
+            throw new RuntimeException("Snapshot of an old puzzle was restored");
+        } catch (IllegalArgumentException expected) {
+        }
+        System.out.println("Snapshot test passed.");
+    }
+
+    private static void testReadViews() throws InterruptedException {
+        System.out.println("Testing published read views...");
+        Random rand = new Random(9);
+        GameState s = new GameState(16);
+        s.generateSolvablePuzzle();
+
+        BoardView first = s.publish();
+        if (s.publish() != first)
+            throw new RuntimeException("Publishing an unchanged board made a new view");
+        GameState expected = new GameState(s);
+        int col = 0;
+        while (s.getCell(3, col) == GameState.TREE)
+            col++;
+        s.setCell(3, col, GameState.TENT);
+        BoardView second = s.publish();
+        if (second.getVersion() <= first.getVersion())
+            throw new RuntimeException("View version did not increase");
+        for (int r = 0; r < 16; r++) {
+            boolean shared = first.rows()[r] == second.rows()[r];
+            if (shared != (r != 3))
+                throw new RuntimeException("Row " + r + " sharing is wrong");
+        }
+        for (int r = 0; r < 16; r++) {
+            for (int c = 0; c < 16; c++) {
+                if (first.getCell(r, c) != expected.getCell(r, c))
+                    throw new RuntimeException("Old view changed after publish");
+                if (second.getCell(r, c) != s.getCell(r, c))
+                    throw new RuntimeException("New view does not match the board");
+            }
+        }
+
+        // A reader on another thread must always see a self-consistent view
+        final GameState shared = s;
+        final AtomicBoolean done = new AtomicBoolean();
+        final String[] failure = new String[1];
+        Thread reader = new Thread(() -> {
+            while (!done.get() && failure[0] == null) {
+                BoardView v = shared.getPublishedView();
+                for (int r = 0; r < v.getRows(); r++) {
+                    int tents = 0;
+                    for (int c = 0; c < v.getCols(); c++) {
+                        if (v.getCell(r, c) == GameState.TENT)
+                            tents++;
+                    }
+                    if (tents != v.getRowUsed(r))
+                        failure[0] = "torn view at version " + v.getVersion();
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 2000; i++) {
+            randomEdits(s, rand, 3);
+            s.publish();
+        }
+        done.set(true);
+        reader.join();
+        if (failure[0] != null)
+            throw new RuntimeException(failure[0]);
+        System.out.println("Read view test passed.");
+    }
+
+    private static void testRectangularBoards() {
+        System.out.println("Testing packed storage and rectangular boards...");
+        Random rand = new Random(10);
+        PackedGrid grid = new PackedGrid(37, 45);
+        int[][] expected = new int[37][45];
+        for (int i = 0; i < 5000; i++) {
+            int r = rand.nextInt(37);
+            int c = rand.nextInt(45);
+            int v = rand.nextInt(4);
+            grid.set(r, c, v);
+            expected[r][c] = v;
+        }
+        for (int r = 0; r < 37; r++) {
+            for (int c = 0; c < 45; c++) {
+                if (grid.get(r, c) != expected[r][c])
+                    throw new RuntimeException("PackedGrid mismatch at " + r + "," + c);
+            }
+        }
+
+        for (int iter = 0; iter < 20; iter++) {
+            GameState s = new GameState(7, 13);
+            s.generateSolvablePuzzle();
+            int tents = 0;
+            for (int r = 0; r < 7; r++) {
+                tents += s.getRowTarget(r);
+            }
+            if (tents != s.getTrees().size())
+                throw new RuntimeException("Targets do not add up to the tree count");
+            if (!DivideConquerCPU.solve(s) || !s.isPuzzleComplete())
+                throw new RuntimeException("Rectangular puzzle not solved");
+            BoardView view = s.publish();
+            if (view.getRows() != 7 || view.getCols() != 13)
+                throw new RuntimeException("View has the wrong shape");
+            for (int r = 0; r < 7; r++) {
+                for (int c = 0; c < 13; c++) {
+                    if (view.getCell(r, c) != s.getCell(r, c))
+                        throw new RuntimeException("View mismatch at " + r + "," + c);
+                }
+            }
+            if (s.getHashKey() != s.computeHashKey())
+                throw new RuntimeException("Key drifted on a rectangular board");
+        }
+        try {
+            new GameState(7, 13).getSize();
+            throw new RuntimeException("getSize() read a rectangular board as square");
+        } catch (IllegalStateException notSquare) {
+        }
+        System.out.println("Rectangular board test passed.");
+    }
+
+    private static void testHashKey() {
+        System.out.println("Testing incremental Zobrist key...");
+        Random rand = new Random(5);
+        GameState s = new GameState(9);
+        s.generateSolvablePuzzle();
+        long empty = s.getHashKey();
+        for (int i = 0; i < 50; i++) {
+            s.pushCheckpoint();
+            randomEdits(s, rand, 30);
+            if (s.getHashKey() != s.computeHashKey())
+                throw new RuntimeException("Incremental key drifted from full recompute");
+            GameState copy = new GameState(s);
+            if (copy.getHashKey() != s.getHashKey())
+                throw new RuntimeException("Copy has a different key");
+            s.rollbackToCheckpoint();
+            if (s.getHashKey() != empty)
+                throw new RuntimeException("Rollback did not restore the key");
+        }
+        s.setCell(0, 0, GameState.GRASS);
+        s.resetBoard();
+        if (s.getHashKey() != empty)
+            throw new RuntimeException("resetBoard did not restore the key");
+        System.out.println("Zobrist key test passed.");
+    }
+
+    private static void testMatching() {
+        System.out.println("Testing incremental matching...");
+        Random rand = new Random(6);
+        int n = 12;
+        for (int iter = 0; iter < 300; iter++) {
+            // Random trees and tents on disjoint cells, dense enough to overlap a lot
+            int[] treeIdAt = new int[n * n];
+            int[] treeCells = new int[n * n];
+            int[] tentCells = new int[n * n];
+            Arrays.fill(treeIdAt, -1);
+            int trees = 0;
+            int tents = 0;
+            for (int cell = 0; cell < n * n; cell++) {
+                int roll = rand.nextInt(10);
+                if (roll < 3) {
+                    treeCells[trees] = cell;
+                    treeIdAt[cell] = trees++;
+                } else if (roll < 6) {
+                    tentCells[tents++] = cell;
+                }
+            }
+            // TentMatching works on the sentinel-bordered layout, the reference
+            // on plain row-major indexes
+            int stride = n + 2;
+            int[] offsets = { -stride, stride, -1, 1 };
+            int[] tentsBordered = toBordered(n, tentCells, tents);
+            CellIdMap ids = idMap(tentsBordered, tents);
+            TentMatching m = new TentMatching(offsets, ids, tentsBordered);
+            m.setTrees(new TreeIndex(stride * stride, Arrays.copyOf(toBordered(n, treeCells, trees), trees)));
+            m.clear();
+            for (int u = 0; u < tents; u++) {
+                m.tentAdded(u);
+            }
+            int slow = kuhnMatching(n, treeIdAt, tentCells, tents, trees);
+            if (m.size() != slow)
+                throw new RuntimeException("Matching size " + m.size() + " != reference " + slow);
+            // Taking the newer half away again must repair to the smaller optimum
+            for (int u = tents - 1; u >= tents / 2; u--) {
+                ids.remove(tentsBordered[u]);
+                m.tentRemoved(u, u);
+            }
+            slow = kuhnMatching(n, treeIdAt, tentCells, tents / 2, trees);
+            if (m.size() != slow)
+                throw new RuntimeException("Matching size " + m.size() + " != reference " + slow + " after removals");
+        }
+        System.out.println("Matching test passed.");
+    }
+
+    private static void testLiveMatching() {
+        System.out.println("Testing live matching and O(1) completion...");
+        Random rand = new Random(7);
+        GameState s = new GameState(10);
+        s.generateSolvablePuzzle();
+        int n = s.getSize();
+        int treeCount = s.getTrees().size();
+        for (int i = 0; i < 3000; i++) {
+            int r = rand.nextInt(n);
+            int c = rand.nextInt(n);
+            // Bias towards tents next to trees so matchings actually form
+            if (s.hasAdjacentTree(r, c) || rand.nextInt(4) == 0)
+                s.setCell(r, c, s.getCell(r, c) == GameState.TENT ? GameState.EMPTY : GameState.TENT);
+
+            if (i % 10 == 0) {
+                int[] treeIdAt = new int[n * n];
+                int[] tentCells = new int[n * n];
+                int tents = 0;
+                for (int cell = 0; cell < n * n; cell++) {
+                    treeIdAt[cell] = s.getTreeIdAt(cell / n, cell % n);
+                    if (s.getCell(cell / n, cell % n) == GameState.TENT)
+                        tentCells[tents++] = cell;
+                }
+                if (kuhnMatching(n, treeIdAt, tentCells, tents, treeCount) != s.getMatchedCount())
+                    throw new RuntimeException("Live matching drifted at step " + i);
+            }
+        }
+
+        s.resetBoard();
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                if (s.getSolutionCell(r, c) == GameState.TENT)
+                    s.placeTent(r, c);
+            }
+        }
+        if (!s.isPuzzleComplete())
+            throw new RuntimeException("Hidden solution not recognised as complete");
+        System.out.println("Live matching test passed.");
+    }
+
+    private static void testCellIdMap() {
+        System.out.println("Testing sparse cell id map...");
+        Random rand = new Random(11);
+        CellIdMap map = new CellIdMap();
+        Map<Integer, Integer> reference = new HashMap<>();
+        for (int i = 0; i < 200000; i++) {
+            // Few distinct cells, so removals hit long probe runs
+            int cell = rand.nextInt(3000);
+            if (rand.nextInt(3) == 0) {
+                map.remove(cell);
+                reference.remove(cell);
+            } else {
+                map.put(cell, i);
+                reference.put(cell, i);
+            }
+            int probe = rand.nextInt(3000);
+            if (map.get(probe) != reference.getOrDefault(probe, -1))
+                throw new RuntimeException("Map lost cell " + probe + " at step " + i);
+        }
+        if (map.size() != reference.size())
+            throw new RuntimeException("Map size " + map.size() + " != " + reference.size());
+        CellIdMap copy = new CellIdMap();
+        copy.copyFrom(map);
+        for (int cell = 0; cell < 3000; cell++) {
+            if (copy.get(cell) != reference.getOrDefault(cell, -1))
+                throw new RuntimeException("Copy differs at cell " + cell);
+        }
+        map.clear();
+        if (map.size() != 0 || map.get(reference.keySet().iterator().next()) != -1)
+            throw new RuntimeException("clear left entries behind");
+        System.out.println("Cell id map test passed.");
+    }
+
+    private static void testStatusReport() {
+        System.out.println("Testing structured status report...");
+        GameState s = new GameState(8);
+        s.generateSolvablePuzzle();
+        int n = s.getSize();
+
+        PuzzleStatus empty = s.getStatus();
+        if (empty != s.getStatus())
+            throw new RuntimeException("Status not cached between mutations");
+        if (empty.getUnmatchedTrees().size() != s.getTrees().size())
+            throw new RuntimeException("Every tree should be unmatched on an empty board");
+
+        // Two touching tents somewhere on free cells
+        outer: for (int r = 0; r < n; r++) {
+            for (int c = 0; c + 1 < n; c++) {
+                if (s.getCell(r, c) == GameState.EMPTY && s.getCell(r, c + 1) == GameState.EMPTY) {
+                    s.placeTent(r, c);
+                    s.placeTent(r, c + 1);
+                    break outer;
+                }
+            }
+        }
+        PuzzleStatus touching = s.getStatus();
+        if (touching == empty)
+            throw new RuntimeException("Status not invalidated by a mutation");
+        if (touching.getTouchingTents().size() != 1)
+            throw new RuntimeException("Expected exactly one touching pair");
+        if (!touching.toMessage().contains("Tents are touching."))
+            throw new RuntimeException("Message lost the touching warning");
+
+        s.resetBoard();
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                if (s.getSolutionCell(r, c) == GameState.TENT)
+                    s.placeTent(r, c);
+            }
+        }
+        if (!s.getStatus().isCorrect() || !s.checkPuzzleStatus().equals("Correct!"))
+            throw new RuntimeException("Solved board not reported correct");
+        System.out.println("Status report test passed.");
+    }
+
+    // Row-major n x n id map -> sentinel-bordered (n + 2)^2 map with -1 border
+    // Map from each of the first count cells to its position
+    private static CellIdMap idMap(int[] cells, int count) {
+        CellIdMap map = new CellIdMap();
+        for (int i = 0; i < count; i++) {
+            map.put(cells[i], i);
+        }
+        return map;
+    }
+
+    private static int[] toBordered(int n, int[] rowMajorCells, int count) {
+        int[] out = new int[rowMajorCells.length];
+        for (int i = 0; i < count; i++) {
+            out[i] = (rowMajorCells[i] / n + 1) * (n + 2) + rowMajorCells[i] % n + 1;
+        }
+        return out;
+    }
+
+    // Plain augmenting-path matching used as the reference
+    private static int kuhnMatching(int n, int[] treeIdAt, int[] tentCells, int tents, int trees) {
+        int[] owner = new int[trees];
+        Arrays.fill(owner, -1);
+        int size = 0;
+        for (int u = 0; u < tents; u++) {
+            if (kuhnAugment(n, treeIdAt, tentCells, u, owner, new boolean[trees]))
+                size++;
+        }
+        return size;
+    }
+
+    private static boolean kuhnAugment(int n, int[] treeIdAt, int[] tentCells, int u, int[] owner,
+            boolean[] seen) {
+        int r = tentCells[u] / n;
+        int c = tentCells[u] % n;
+        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+        for (int[] d : dirs) {
+            int nr = r + d[0];
+            int nc = c + d[1];
+            if (nr < 0 || nr >= n || nc < 0 || nc >= n)
+                continue;
+            int t = treeIdAt[nr * n + nc];
+            if (t < 0 || seen[t])
+                continue;
+            seen[t] = true;
+            if (owner[t] == -1 || kuhnAugment(n, treeIdAt, tentCells, owner[t], owner, seen)) {
+                owner[t] = u;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void randomEdits(GameState s, Random rand, int count) {
+        int n = s.getSize();
+        for (int i = 0; i < count; i++) {
+            s.setCell(rand.nextInt(n), rand.nextInt(n), rand.nextBoolean() ? GameState.TENT : GameState.GRASS);
+        }
+    }
+
+    private static void assertSameBoard(GameState expected, GameState actual, String what) {
+        int n = expected.getSize();
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                if (expected.getCell(r, c) != actual.getCell(r, c))
+                    throw new RuntimeException(what + ": cell mismatch at " + r + "," + c);
+                if (expected.hasAdjacentTent(r, c) != actual.hasAdjacentTent(r, c))
+                    throw new RuntimeException(what + ": bit-plane mismatch at " + r + "," + c);
+            }
+            if (expected.getRowUsed(r) != actual.getRowUsed(r) || expected.getColUsed(r) != actual.getColUsed(r))
+                throw new RuntimeException(what + ": counter mismatch at index " + r);
+        }
+    }
+
+    private static int[][] randomGrid(int n, Random rand) {
+        int[][] grid = new int[n][n];
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                grid[r][c] = rand.nextInt(4);
+            }
+        }
+        return grid;
+    }
+
+    private static BitBoard toBits(int[][] grid) {
+        int n = grid.length;
+        BitBoard bits = new BitBoard(n);
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                bits.set(r, c, grid[r][c]);
+            }
+        }
+        return bits;
+    }
+
+    private static boolean naiveAdjacentTent(int[][] grid, int r, int c) {
+        int n = grid.length;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if (dr == 0 && dc == 0)
+                    continue;
+                int nr = r + dr;
+                int nc = c + dc;
+                if (nr >= 0 && nr < n && nc >= 0 && nc < n && grid[nr][nc] == GameState.TENT)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean naiveOrthogonalTree(int[][] grid, int r, int c) {
+        int n = grid.length;
+        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+        for (int[] d : dirs) {
+            int nr = r + d[0];
+            int nc = c + d[1];
+            if (nr >= 0 && nr < n && nc >= 0 && nc < n && grid[nr][nc] == GameState.TREE)
+                return true;
+        }
+        return false;
+    }
+}
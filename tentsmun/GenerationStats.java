@@ -0,0 +1,51 @@
+/**
+ * What one {@link PuzzleGenerator#generate} call had to do: how many times
+ * it started over, how many local repair steps it tried and kept, how many
+ * pairs were added to make the solution unique, and how long it took.
+ */
+public final class GenerationStats {
+
+    private final int restarts;
+    private final int repairSteps;
+    private final int repairsKept;
+    private final int uniquenessFixes;
+    private final long elapsedNanos;
+
+    public GenerationStats(int restarts, int repairSteps, int repairsKept, int uniquenessFixes, long elapsedNanos) {
+        this.restarts = restarts;
+        this.repairSteps = repairSteps;
+        this.repairsKept = repairsKept;
+        this.uniquenessFixes = uniquenessFixes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Full restarts after a repair budget ran out; 0 in the normal case
+    public int getRestarts() {
+        return restarts;
+    }
+
+    public int getRepairSteps() {
+        return repairSteps;
+    }
+
+    // Repair steps that did not lose tents and were kept
+    public int getRepairsKept() {
+        return repairsKept;
+    }
+
+    // Tree/tent pairs PuzzleGenerator.generateUnique added to the puzzle it
+    // returned to rule out other solutions
+    public int getUniquenessFixes() {
+        return uniquenessFixes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "restarts=" + restarts + ", repairs=" + repairSteps + " (kept " + repairsKept + "), "
+                + "uniqueness fixes=" + uniquenessFixes + ", " + (elapsedNanos / 1000) + " us";
+    }
+}
@@ -6,10 +6,16 @@ import java.util.List;
 
 public class GreedyCPU {
 
+    // Rule tiers, in the order makeGreedyMove tries them
+    public static final int TIER_FORCED = 1;
+    public static final int TIER_SINGLE_NEIGHBOR = 2;
+    public static final int TIER_DEGREE = 3;
+
     public static void solveAll(GameState state) {
-        int n = state.getSize();
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
+        int rows = state.getRows();
+        int cols = state.getCols();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
                 if (state.getSolutionCell(r, c) == GameState.TENT) {
                     state.setCell(r, c, GameState.TENT);
                 } else if (state.getSolutionCell(r, c) == GameState.EMPTY && state.getCell(r, c) != GameState.TREE) {
@@ -38,17 +44,28 @@ public class GreedyCPU {
         return false;
     }
 
+    // One move using only the rule tiers up to maxTier; never peeks at the
+    // solution, so a false return means those rules are stuck
+    public static boolean makeTieredMove(GameState state, int maxTier) {
+        if (maxTier >= TIER_FORCED && applyForcedMoves(state))
+            return true;
+        if (maxTier >= TIER_SINGLE_NEIGHBOR && applySingleNeighborTree(state))
+            return true;
+        return maxTier >= TIER_DEGREE && applyDegreeHeuristic(state);
+    }
+
     private static boolean applyForcedMoves(GameState state) {
-        int n = state.getSize();
+        int rows = state.getRows();
+        int cols = state.getCols();
 
-        for (int r = 0; r < n; r++) {
+        for (int r = 0; r < rows; r++) {
             int target = state.getRowTarget(r);
             int current = state.getRowUsed(r);
             if (current >= target)
                 continue;
 
             List<Point> validSpots = new ArrayList<>();
-            for (int c = 0; c < n; c++) {
+            for (int c = 0; c < cols; c++) {
                 if (state.getCell(r, c) == GameState.EMPTY && isValidTentSpot(state, r, c)) {
                     validSpots.add(new Point(r, c));
                 }
@@ -61,14 +78,14 @@ public class GreedyCPU {
             }
         }
 
-        for (int c = 0; c < n; c++) {
+        for (int c = 0; c < cols; c++) {
             int target = state.getColTarget(c);
             int current = state.getColUsed(c);
             if (current >= target)
                 continue;
 
             List<Point> validSpots = new ArrayList<>();
-            for (int r = 0; r < n; r++) {
+            for (int r = 0; r < rows; r++) {
                 if (state.getCell(r, c) == GameState.EMPTY && isValidTentSpot(state, r, c)) {
                     validSpots.add(new Point(r, c));
                 }
@@ -126,9 +143,10 @@ public class GreedyCPU {
     }
 
     private static boolean applySolutionFallback(GameState state) {
-        int n = state.getSize();
-        for (int r = 0; r < n; r++) {
-            for (int c = 0; c < n; c++) {
+        int rows = state.getRows();
+        int cols = state.getCols();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
                 if (state.getSolutionCell(r, c) == GameState.TENT && state.getCell(r, c) != GameState.TENT) {
                     if (isValidTentSpot(state, r, c)) {
                         state.placeTent(r, c);
@@ -152,12 +170,11 @@ public class GreedyCPU {
         return list;
     }
 
+    // A tree on the edge sees BORDER past it, never a tent
     private static boolean isTreeSatisfied(GameState state, int r, int c) {
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TENT) {
+        int idx = state.cellIndex(r, c);
+        for (int d : state.getNeighbours4()) {
+            if (state.getCellAt(idx + d) == GameState.TENT) {
                 return true;
             }
         }
@@ -166,11 +183,11 @@ public class GreedyCPU {
 
     private static List<Point> getValidTentNeighbors(GameState state, int r, int c) {
         List<Point> neighbors = new ArrayList<>();
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.EMPTY) {
+        int idx = state.cellIndex(r, c);
+        for (int d : state.getNeighbours4()) {
+            if (state.getCellAt(idx + d) == GameState.EMPTY) {
+                int nr = state.rowOf(idx + d);
+                int nc = state.colOf(idx + d);
                 if (isValidTentSpot(state, nr, nc)) {
                     neighbors.add(new Point(nr, nc));
                 }
@@ -185,34 +202,15 @@ public class GreedyCPU {
         if (state.getCell(r, c) != GameState.EMPTY)
             return false;
 
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr == 0 && dc == 0)
-                    continue;
-                int nr = r + dr;
-                int nc = c + dc;
-                if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TENT) {
-                    return false;
-                }
-            }
-        }
+        if (state.hasAdjacentTent(r, c))
+            return false;
 
         if (state.getRowUsed(r) >= state.getRowTarget(r))
             return false;
         if (state.getColUsed(c) >= state.getColTarget(c))
             return false;
 
-        boolean hasTree = false;
-        int[][] dirs = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
-        for (int[] d : dirs) {
-            int nr = r + d[0];
-            int nc = c + d[1];
-            if (state.inBounds(nr, nc) && state.getCell(nr, nc) == GameState.TREE) {
-                hasTree = true;
-                break;
-            }
-        }
-        if (!hasTree)
+        if (!state.hasAdjacentTree(r, c))
             return false;
 
         return true;
@@ -0,0 +1,50 @@
+/**
+ * Rows x cols grid of 2-bit cells (EMPTY, TREE, TENT or GRASS) packed 32 to
+ * a long, row-major. A 4000 x 4000 grid takes 4 MB instead of the 64 MB of
+ * an int[][].
+ */
+public final class PackedGrid {
+
+    private final int rows;
+    private final int cols;
+    private final long[] words;
+
+    public PackedGrid(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.words = new long[(int) (((long) rows * cols + 31) >>> 5)];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int get(int r, int c) {
+        return get(words, r * cols + c);
+    }
+
+    public void set(int r, int c, int value) {
+        int i = r * cols + c;
+        int shift = (i & 31) << 1;
+        int w = i >>> 5;
+        words[w] = (words[w] & ~(3L << shift)) | ((long) (value & 3) << shift);
+    }
+
+    // Cell i of a packed word array
+    static int get(long[] words, int i) {
+        return (int) (words[i >>> 5] >>> ((i & 31) << 1)) & 3;
+    }
+
+    // Packs length byte cells starting at src[from] into a new word array
+    static long[] pack(byte[] src, int from, int length) {
+        long[] out = new long[(length + 31) >>> 5];
+        for (int i = 0; i < length; i++) {
+            out[i >>> 5] |= (long) (src[from + i] & 3) << ((i & 31) << 1);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,342 @@
+import java.awt.Point;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A file of ready-made puzzles, read through a memory mapping so a bank of
+ * any size costs no heap and the k-th puzzle of a size is found in O(1).
+ *
+ * Layout, all integers big-endian:
+ * <pre>
+ * header   int magic, int version, int idMapping, int indexOffset
+ * records  one per puzzle, see below
+ * tables   per size: int offset of each of its records
+ * index    int sizeCount, then per size: int rows, int cols, int count,
+ *          int tableOffset
+ * </pre>
+ * A record is a flags byte (id, unique, grade), the tent count, the tree
+ * cells in tree id order as zig-zag varint deltas of r * cols + c, the tent
+ * cells in row-major order as varint gaps, the row and column targets as
+ * varints, then the id's tent count and 8-byte seed and the grade's fields
+ * when their flags are set. Targets are redundant with the tents and are
+ * checked on read. idMapping is the {@link PuzzleId#MAPPING_VERSION} the
+ * ids were made under; a bank from another one is refused, since its ids
+ * would rebuild other puzzles than the ones stored.
+ */
+public final class PuzzleBank {
+
+    private static final int MAGIC = 0x544E5442; // "TNTB"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+
+    private static final int FLAG_ID = 1;
+    private static final int FLAG_UNIQUE = 2;
+    private static final int FLAG_GRADE = 4;
+
+    private final MappedByteBuffer data;
+    // rows << 32 | cols -> { count, tableOffset }
+    private final Map<Long, int[]> index = new HashMap<>();
+    private final List<Point> sizes = new ArrayList<>();
+    private int totalCount;
+
+    private PuzzleBank(MappedByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC)
+            throw new IOException("Not a puzzle bank");
+        if (data.getInt(4) != VERSION)
+            throw new IOException("Unsupported puzzle bank version " + data.getInt(4));
+        if (data.getInt(8) != PuzzleId.MAPPING_VERSION)
+            throw new IOException("Puzzle bank ids use mapping version " + data.getInt(8) + ", not "
+                    + PuzzleId.MAPPING_VERSION);
+        int at = data.getInt(12);
+        int sizeCount = data.getInt(at);
+        for (int i = 0; i < sizeCount; i++) {
+            int entry = at + 4 + i * 16;
+            int rows = data.getInt(entry);
+            int cols = data.getInt(entry + 4);
+            int count = data.getInt(entry + 8);
+            index.put(sizeKey(rows, cols), new int[] { count, data.getInt(entry + 12) });
+            sizes.add(new Point(rows, cols));
+            totalCount += count;
+        }
+    }
+
+    /**
+     * Maps a bank file read-only. Only the index is read here; puzzles are
+     * decoded one at a time by {@link #get}.
+     *
+     * @throws IOException if the file cannot be read or is not a bank
+     */
+    public static PuzzleBank open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Puzzle bank over 2 GB: " + file);
+            return new PuzzleBank(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated puzzle bank: " + file, e);
+        }
+    }
+
+    // Board sizes in the bank as (rows, cols), in the order they were added
+    public List<Point> getSizes() {
+        return Collections.unmodifiableList(sizes);
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    // Puzzles of the given size, 0 if there are none
+    public int getCount(int rows, int cols) {
+        int[] entry = index.get(sizeKey(rows, cols));
+        return entry == null ? 0 : entry[0];
+    }
+
+    /**
+     * Decodes the k-th puzzle of a size. Reads are absolute, so one bank
+     * can be shared by any number of threads.
+     */
+    public PuzzleData get(int rows, int cols, int k) {
+        int[] entry = index.get(sizeKey(rows, cols));
+        if (entry == null || k < 0 || k >= entry[0])
+            throw new IllegalArgumentException("No puzzle " + k + " of size " + rows + "x" + cols);
+        return decode(rows, cols, data.getInt(entry[1] + 4 * k));
+    }
+
+    private PuzzleData decode(int rows, int cols, int offset) {
+        Reader in = new Reader(data, offset);
+        int flags = data.get(in.pos++);
+        int tents = in.readVarInt();
+
+        PackedGrid grid = new PackedGrid(rows, cols);
+        List<Point> trees = new ArrayList<>(tents);
+        int cell = 0;
+        for (int i = 0; i < tents; i++) {
+            int delta = in.readVarInt();
+            cell += (delta >>> 1) ^ -(delta & 1);
+            trees.add(new Point(cell / cols, cell % cols));
+            grid.set(cell / cols, cell % cols, GameState.TREE);
+        }
+        cell = -1;
+        for (int i = 0; i < tents; i++) {
+            cell += in.readVarInt();
+            grid.set(cell / cols, cell % cols, GameState.TENT);
+        }
+        PuzzleData puzzle = new PuzzleData(grid, trees);
+        for (int r = 0; r < rows; r++) {
+            if (in.readVarInt() != puzzle.getRowTarget(r))
+                throw new IllegalStateException("Corrupt puzzle bank record at " + offset);
+        }
+        for (int c = 0; c < cols; c++) {
+            if (in.readVarInt() != puzzle.getColTarget(c))
+                throw new IllegalStateException("Corrupt puzzle bank record at " + offset);
+        }
+
+        if ((flags & FLAG_ID) != 0) {
+            int idTents = in.readVarInt();
+            long seed = data.getLong(in.pos);
+            in.pos += 8;
+            puzzle = puzzle.withId(new PuzzleId(rows, cols, idTents, (flags & FLAG_UNIQUE) != 0, seed));
+        }
+        if ((flags & FLAG_GRADE) != 0) {
+            int tier = in.readVarInt();
+            long nodes = in.readVarLong();
+            int depth = in.readVarInt();
+            long backtracks = in.readVarLong();
+            puzzle = puzzle.withGrade(new DifficultyGrade(tier, nodes, depth, backtracks));
+        }
+        return puzzle;
+    }
+
+    private static long sizeKey(int rows, int cols) {
+        return ((long) rows << 32) | cols;
+    }
+
+    // Varint cursor over the mapped buffer; absolute reads only
+    private static final class Reader {
+        private final ByteBuffer data;
+        private int pos;
+
+        Reader(ByteBuffer data, int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = data.get(pos++);
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+        }
+    }
+
+    /**
+     * Streams puzzles into a new bank file. Records are written as they are
+     * added; only one int per puzzle is kept until {@link #close()} writes
+     * the tables and the index.
+     */
+    public static final class Writer implements Closeable {
+        private final Path file;
+        private final DataOutputStream out;
+        // Sizes in order of first appearance, and the record offsets of each
+        private final List<Point> sizes = new ArrayList<>();
+        private final Map<Long, int[]> offsets = new HashMap<>();
+        private final Map<Long, Integer> counts = new HashMap<>();
+
+        public Writer(Path file) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(PuzzleId.MAPPING_VERSION);
+            out.writeInt(0); // index offset, patched by close()
+        }
+
+        public void add(PuzzleData puzzle) throws IOException {
+            int rows = puzzle.getRows();
+            int cols = puzzle.getCols();
+            long key = sizeKey(rows, cols);
+            int count = counts.getOrDefault(key, 0);
+            int[] table = offsets.get(key);
+            if (table == null) {
+                sizes.add(new Point(rows, cols));
+                table = new int[16];
+            } else if (count == table.length) {
+                table = Arrays.copyOf(table, count * 2);
+            }
+            offsets.put(key, table);
+            table[count] = position();
+            counts.put(key, count + 1);
+
+            PuzzleId id = puzzle.getId();
+            DifficultyGrade grade = puzzle.getGrade();
+            int flags = (id != null ? FLAG_ID : 0) | (id != null && id.isUnique() ? FLAG_UNIQUE : 0)
+                    | (grade != null ? FLAG_GRADE : 0);
+            out.writeByte(flags);
+            writeVarLong(puzzle.getTreeCount());
+            int previous = 0;
+            for (Point t : puzzle.getTrees()) {
+                int cell = t.x * cols + t.y;
+                int delta = cell - previous;
+                writeVarLong(((delta << 1) ^ (delta >> 31)) & 0xFFFFFFFFL);
+                previous = cell;
+            }
+            previous = -1;
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    if (puzzle.getSolutionCell(r, c) == GameState.TENT) {
+                        writeVarLong(r * cols + c - previous);
+                        previous = r * cols + c;
+                    }
+                }
+            }
+            for (int r = 0; r < rows; r++) {
+                writeVarLong(puzzle.getRowTarget(r));
+            }
+            for (int c = 0; c < cols; c++) {
+                writeVarLong(puzzle.getColTarget(c));
+            }
+            if (id != null) {
+                writeVarLong(id.getTents());
+                out.writeLong(id.getSeed());
+            }
+            if (grade != null) {
+                writeVarLong(grade.getGreedyTier());
+                writeVarLong(grade.getNodes());
+                writeVarLong(grade.getMaxDepth());
+                writeVarLong(grade.getBacktracks());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            int[] tableOffsets = new int[sizes.size()];
+            for (int i = 0; i < sizes.size(); i++) {
+                long key = sizeKey(sizes.get(i).x, sizes.get(i).y);
+                tableOffsets[i] = position();
+                int[] table = offsets.get(key);
+                for (int k = 0; k < counts.get(key); k++) {
+                    out.writeInt(table[k]);
+                }
+            }
+            int indexOffset = position();
+            out.writeInt(sizes.size());
+            for (int i = 0; i < sizes.size(); i++) {
+                Point size = sizes.get(i);
+                out.writeInt(size.x);
+                out.writeInt(size.y);
+                out.writeInt(counts.get(sizeKey(size.x, size.y)));
+                out.writeInt(tableOffsets[i]);
+            }
+            out.close();
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(12);
+                raf.writeInt(indexOffset);
+            }
+        }
+
+        private int position() throws IOException {
+            if (out.size() == Integer.MAX_VALUE)
+                throw new IOException("Puzzle bank over 2 GB: " + file);
+            return out.size();
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    /**
+     * Builds a bank of graded unique puzzles:
+     * {@code java PuzzleBank <file> <count per size> <size>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: java PuzzleBank <file> <count per size> <size>...");
+            return;
+        }
+        int count = Integer.parseInt(args[1]);
+        long masterSeed = System.nanoTime();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        try (Writer writer = new Writer(Paths.get(args[0]))) {
+            for (int i = 2; i < args.length; i++) {
+                int size = Integer.parseInt(args[i]);
+                PuzzleData[] puzzles = new PuzzleData[count];
+                new BatchGenerator(size, size, true).generate(pool, masterSeed + i, count, (p, k) -> puzzles[k] = p);
+                DifficultyGrader.gradeAll(pool, puzzles);
+                for (PuzzleData p : puzzles) {
+                    writer.add(p);
+                }
+                System.out.println(count + " puzzles of " + size + "x" + size + " written");
+            }
+        }
+    }
+}
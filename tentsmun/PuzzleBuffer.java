@@ -0,0 +1,123 @@
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a few ready puzzles per board size so starting a game is a queue
+ * poll instead of a generation on the Swing thread. A low-priority daemon
+ * thread tops up every size that has been asked for, emptiest queue first,
+ * and sleeps while all of them are full. {@link #take} only generates on the
+ * caller's thread when the queue for its size is empty.
+ */
+public class PuzzleBuffer {
+
+    private final int capacity;
+    private final boolean unique;
+
+    // rows << 32 | cols -> ready puzzles; guarded by this
+    private final Map<Long, ArrayDeque<PuzzleData>> queues = new LinkedHashMap<>();
+    private final Thread producer;
+    private int hits;
+    private int misses;
+
+    public PuzzleBuffer(int capacity, boolean unique) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Buffer capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.unique = unique;
+        this.producer = new Thread(this::produce, "puzzle-buffer");
+        producer.setDaemon(true);
+        producer.setPriority(Thread.MIN_PRIORITY);
+        producer.start();
+    }
+
+    // Starts keeping puzzles of this size ready
+    public synchronized void prefetch(int rows, int cols) {
+        queues.computeIfAbsent(sizeKey(rows, cols), k -> new ArrayDeque<>(capacity));
+        notifyAll();
+    }
+
+    /**
+     * Returns a ready puzzle of the size, or generates one right away if
+     * none is ready. Either way the size is refilled in the background.
+     */
+    public PuzzleData take(int rows, int cols) {
+        PuzzleData puzzle;
+        synchronized (this) {
+            prefetch(rows, cols);
+            puzzle = queues.get(sizeKey(rows, cols)).poll();
+            if (puzzle != null)
+                hits++;
+            else
+                misses++;
+        }
+        return puzzle != null ? puzzle : PuzzleId.random(rows, cols, unique).generate();
+    }
+
+    public synchronized int getReadyCount(int rows, int cols) {
+        ArrayDeque<PuzzleData> queue = queues.get(sizeKey(rows, cols));
+        return queue == null ? 0 : queue.size();
+    }
+
+    // Takes served from the queue, and takes that had to generate
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    // Stops the producer; take still works, generating every time
+    public void shutdown() {
+        producer.interrupt();
+    }
+
+    private void produce() {
+        try {
+            while (true) {
+                long key = nextSize();
+                int rows = (int) (key >>> 32);
+                int cols = (int) key;
+                PuzzleData puzzle;
+                try {
+                    puzzle = PuzzleId.random(rows, cols, unique).generate();
+                } catch (IllegalStateException e) {
+                    // No puzzle fits this size; stop trying, take reports it
+                    synchronized (this) {
+                        queues.remove(key);
+                    }
+                    continue;
+                }
+                synchronized (this) {
+                    ArrayDeque<PuzzleData> queue = queues.get(key);
+                    if (queue != null && queue.size() < capacity)
+                        queue.add(puzzle);
+                }
+            }
+        } catch (InterruptedException e) {
+            // shutdown
+        }
+    }
+
+    // Size with the fewest ready puzzles, waiting while every queue is full
+    private synchronized long nextSize() throws InterruptedException {
+        while (true) {
+            long best = 0;
+            int fewest = capacity;
+            for (Map.Entry<Long, ArrayDeque<PuzzleData>> e : queues.entrySet()) {
+                if (e.getValue().size() < fewest) {
+                    fewest = e.getValue().size();
+                    best = e.getKey();
+                }
+            }
+            if (fewest < capacity)
+                return best;
+            wait();
+        }
+    }
+
+    private static long sizeKey(int rows, int cols) {
+        return ((long) rows << 32) | cols;
+    }
+}
@@ -0,0 +1,180 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a puzzle that never change while it is played: hidden
+ * solution, trees, row and column targets, and the indexes derived from them.
+ * Instances are immutable, so every GameState playing the same puzzle shares
+ * one and copying a GameState only copies play state.
+ */
+public final class PuzzleData {
+
+    private final int rows;
+    private final int cols;
+    private final int stride;
+
+    private final PackedGrid solution;
+    private final List<Point> trees;
+    private final int[] rowTarget;
+    private final int[] colTarget;
+
+    // Tree ids on the same sentinel-bordered layout GameState uses for cells
+    private final TreeIndex treeIndex;
+
+    private final long zobristSeed;
+
+    // How to rebuild this puzzle, or null if it did not come from an id
+    private final PuzzleId id;
+    // Difficulty from DifficultyGrader, or null if it was never graded
+    private final DifficultyGrade grade;
+
+    // Square puzzle
+    public PuzzleData(int n, int[][] solutionGrid, List<Point> trees) {
+        this(n, n, solutionGrid, trees);
+    }
+
+    public PuzzleData(int rows, int cols, int[][] solutionGrid, List<Point> trees) {
+        this(pack(rows, cols, solutionGrid), trees);
+    }
+
+    /**
+     * Builds the puzzle from a solved grid (TREE and TENT cells) and its
+     * trees in id order. The grid is kept, not copied, and must not be
+     * changed afterwards. Targets are counted from the tents of the grid.
+     */
+    public PuzzleData(PackedGrid solution, List<Point> trees) {
+        this.rows = solution.getRows();
+        this.cols = solution.getCols();
+        this.stride = cols + 2;
+        this.solution = solution;
+        this.rowTarget = new int[rows];
+        this.colTarget = new int[cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (solution.get(r, c) == GameState.TENT) {
+                    rowTarget[r]++;
+                    colTarget[c]++;
+                }
+            }
+        }
+
+        List<Point> copy = new ArrayList<>(trees.size());
+        int[] treeCells = new int[trees.size()];
+        for (int i = 0; i < trees.size(); i++) {
+            Point t = trees.get(i);
+            copy.add(new Point(t));
+            treeCells[i] = (t.x + 1) * stride + t.y + 1;
+        }
+        this.trees = Collections.unmodifiableList(copy);
+        this.treeIndex = new TreeIndex((rows + 2) * stride, treeCells);
+
+        // Seed the Zobrist keys from the puzzle itself so the same layout
+        // always hashes the same way. Targets count too: puzzles with the
+        // same trees but other targets have other dead boards
+        long seed = rows == cols ? mix64(rows) : mix64(mix64(rows) ^ cols);
+        for (Point t : trees) {
+            seed = mix64(seed ^ (t.x * (long) cols + t.y));
+        }
+        for (int target : rowTarget) {
+            seed = mix64(seed ^ target);
+        }
+        for (int target : colTarget) {
+            seed = mix64(seed ^ target);
+        }
+        this.zobristSeed = seed;
+        this.id = null;
+        this.grade = null;
+    }
+
+    // Same puzzle tagged with an id and grade; every array is shared
+    private PuzzleData(PuzzleData other, PuzzleId id, DifficultyGrade grade) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.stride = other.stride;
+        this.solution = other.solution;
+        this.trees = other.trees;
+        this.rowTarget = other.rowTarget;
+        this.colTarget = other.colTarget;
+        this.treeIndex = other.treeIndex;
+        this.zobristSeed = other.zobristSeed;
+        this.id = id;
+        this.grade = grade;
+    }
+
+    PuzzleData withId(PuzzleId id) {
+        return new PuzzleData(this, id, grade);
+    }
+
+    PuzzleData withGrade(DifficultyGrade grade) {
+        return new PuzzleData(this, id, grade);
+    }
+
+    // Blank puzzle with no trees, used before the first generation
+    public static PuzzleData empty(int rows, int cols) {
+        return new PuzzleData(new PackedGrid(rows, cols), Collections.<Point>emptyList());
+    }
+
+    public PuzzleId getId() {
+        return id;
+    }
+
+    public DifficultyGrade getGrade() {
+        return grade;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getSolutionCell(int r, int c) {
+        return solution.get(r, c);
+    }
+
+    public List<Point> getTrees() {
+        return trees;
+    }
+
+    public int getTreeCount() {
+        return treeIndex.size();
+    }
+
+    public int getRowTarget(int r) {
+        return rowTarget[r];
+    }
+
+    public int getColTarget(int c) {
+        return colTarget[c];
+    }
+
+    public long getZobristSeed() {
+        return zobristSeed;
+    }
+
+    // Tree ids by sentinel-bordered cell index, and bordered cell by tree id
+    TreeIndex treeIndex() {
+        return treeIndex;
+    }
+
+    private static PackedGrid pack(int rows, int cols, int[][] grid) {
+        PackedGrid packed = new PackedGrid(rows, cols);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                packed.set(r, c, grid[r][c]);
+            }
+        }
+        return packed;
+    }
+
+    // SplitMix64 finaliser
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
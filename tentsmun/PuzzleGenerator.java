@@ -0,0 +1,359 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds puzzles constructively. One pass visits every cell in random order
+ * and pairs a tent with a tree wherever the rules allow. If that falls short
+ * of the target, local repair steps clear the tents blocking one cell and
+ * refill the area around it, keeping the change unless it lost tents. Only
+ * when a whole repair budget is spent does it start over, and after a fixed
+ * number of restarts it gives up, so the worst case is bounded.
+ */
+public class PuzzleGenerator {
+
+    private static final int MAX_RESTARTS = 8;
+    // Repair steps allowed per attempt, per cell of the board
+    private static final int REPAIRS_PER_CELL = 8;
+    // Repairs refill the (2R+1) x (2R+1) window around the chosen cell
+    private static final int REPAIR_RADIUS = 2;
+    // Pairs generateUnique may add to one puzzle before starting over
+    private static final int MAX_UNIQUENESS_FIXES = 16;
+    // Trees per cell. Non-touching tents fill at most a quarter of the board,
+    // but repair already gives up at 0.25; 0.22 generates on every seed tried
+    // from 6x6 to 1000x1000.
+    public static final double MAX_DENSITY = 0.22;
+    // Largest side generateUnique accepts, the largest board the game offers.
+    // Its search for a second solution to block recurses once per branched
+    // cell and gets slow past this (100x100 takes up to a second a puzzle).
+    public static final int MAX_UNIQUE_SIDE = 50;
+
+    private static final byte EMPTY = GameState.EMPTY;
+    private static final byte TREE = GameState.TREE;
+    private static final byte TENT = GameState.TENT;
+    private static final byte BORDER = GameState.BORDER;
+
+    private final int rows;
+    private final int cols;
+    private final int targetTents;
+
+    // Work board with a BORDER ring, laid out like GameState's cells
+    private final int stride;
+    private final byte[] grid;
+    private final int[] treeOf;
+    private final int[] orthogonal;
+    private final int[] around;
+    private final int[] order;
+    private final int[] window;
+    private int tentCount;
+
+    // Undo log for the current repair step: cell, old value, old treeOf
+    private int[] log = new int[96];
+    private int logSize;
+    private boolean logging;
+
+    private GenerationStats lastStats;
+
+    // N + 1 tents on an N x N board; the longer side on a rectangle
+    public PuzzleGenerator(int rows, int cols) {
+        this(rows, cols, Math.max(rows, cols) + 1);
+    }
+
+    public PuzzleGenerator(int rows, int cols, int targetTents) {
+        this.rows = rows;
+        this.cols = cols;
+        this.targetTents = targetTents;
+        this.stride = cols + 2;
+        this.grid = new byte[(rows + 2) * stride];
+        this.treeOf = new int[grid.length];
+        this.orthogonal = new int[] { stride, -stride, 1, -1 };
+        this.around = new int[] { -stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1 };
+        this.order = new int[rows * cols];
+        int side = 2 * REPAIR_RADIUS + 1;
+        this.window = new int[side * side];
+    }
+
+    /**
+     * Tent (and tree) count for a tree density, in trees per cell, e.g. 0.1
+     * for a tree on every tenth cell. Always at least one.
+     */
+    public static int tentsForDensity(int rows, int cols, double density) {
+        if (!(density > 0 && density <= MAX_DENSITY))
+            throw new IllegalArgumentException("Tree density must be in (0, " + MAX_DENSITY + "]: " + density);
+        return (int) Math.max(1, Math.round(density * rows * cols));
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getTargetTents() {
+        return targetTents;
+    }
+
+    // Counters from the last generate call, or null before the first
+    public GenerationStats getLastStats() {
+        return lastStats;
+    }
+
+    /**
+     * Generates a puzzle with exactly {@link #getTargetTents()} tent/tree
+     * pairs.
+     *
+     * @throws IllegalStateException if the target could not be reached within
+     *         the restart and repair budget, e.g. more tents than fit
+     */
+    public PuzzleData generate(SplittableRandom rand) {
+        long start = System.nanoTime();
+        int repairBudget = REPAIRS_PER_CELL * rows * cols;
+        int repairSteps = 0;
+        int repairsKept = 0;
+        for (int attempt = 0; attempt <= MAX_RESTARTS; attempt++) {
+            fillGreedy(rand);
+            for (int step = 0; step < repairBudget && tentCount < targetTents; step++) {
+                repairSteps++;
+                if (repair(rand))
+                    repairsKept++;
+            }
+            if (tentCount == targetTents) {
+                lastStats = new GenerationStats(attempt, repairSteps, repairsKept, 0, System.nanoTime() - start);
+                return toPuzzle();
+            }
+        }
+        lastStats = new GenerationStats(MAX_RESTARTS, repairSteps, repairsKept, 0, System.nanoTime() - start);
+        throw new IllegalStateException("Could not place " + targetTents + " tents on a " + rows + "x" + cols + " board");
+    }
+
+    /**
+     * Generates a puzzle whose hidden solution is its only solution. The
+     * solver counts solutions but stops at the second one; while a second
+     * solution exists, a tree is planted on one of its tents that the hidden
+     * solution leaves empty, paired with a new hidden tent next to it, which
+     * rules that solution out. Each fix adds one pair, so unique puzzles can
+     * have a few more than {@link #getTargetTents()} tents.
+     *
+     * @throws IllegalArgumentException if a side is over
+     *         {@link #MAX_UNIQUE_SIDE}
+     * @throws IllegalStateException if no unique puzzle was found within the
+     *         restart budget
+     */
+    public PuzzleData generateUnique(SplittableRandom rand) {
+        if (rows > MAX_UNIQUE_SIDE || cols > MAX_UNIQUE_SIDE)
+            throw new IllegalArgumentException("Unique puzzles are limited to " + MAX_UNIQUE_SIDE + " per side, not "
+                    + rows + "x" + cols);
+        long start = System.nanoTime();
+        int restarts = 0;
+        int repairSteps = 0;
+        int repairsKept = 0;
+        for (int attempt = 0; attempt <= MAX_RESTARTS; attempt++) {
+            PuzzleData puzzle = generate(rand);
+            restarts += lastStats.getRestarts();
+            repairSteps += lastStats.getRepairSteps();
+            repairsKept += lastStats.getRepairsKept();
+            for (int fix = 0; fix <= MAX_UNIQUENESS_FIXES; fix++) {
+                if (DivideConquerCPU.countSolutions(new GameState(puzzle), 2, null) == 1) {
+                    lastStats = new GenerationStats(restarts + attempt, repairSteps, repairsKept, fix,
+                            System.nanoTime() - start);
+                    return puzzle;
+                }
+                if (fix == MAX_UNIQUENESS_FIXES)
+                    break;
+                // Block the first other solution in a fixed order, not the
+                // first the search reaches, so a PuzzleId keeps building the
+                // same puzzle when the solver's propagation changes
+                List<Point> other = DivideConquerCPU.firstOtherSolution(new GameState(puzzle));
+                if (other == null)
+                    throw new IllegalStateException("Solver counted a second solution it cannot find");
+                if (!blockSolution(other, rand))
+                    break;
+                puzzle = toPuzzle();
+            }
+        }
+        lastStats = new GenerationStats(restarts + MAX_RESTARTS, repairSteps, repairsKept, 0,
+                System.nanoTime() - start);
+        throw new IllegalStateException("Could not make a unique " + rows + "x" + cols + " puzzle");
+    }
+
+    // Turns a random tent of the other solution that the hidden one leaves
+    // empty into a tree, with a new hidden tent beside it
+    private boolean blockSolution(List<Point> tents, SplittableRandom rand) {
+        int size = tents.size();
+        int[] candidates = new int[size];
+        for (int i = 0; i < size; i++) {
+            candidates[i] = cellIndex(tents.get(i).x, tents.get(i).y);
+        }
+        for (int i = 0; i < size; i++) {
+            int j = i + rand.nextInt(size - i);
+            int cell = candidates[j];
+            candidates[j] = candidates[i];
+            candidates[i] = cell;
+            if (grid[cell] != EMPTY)
+                continue;
+            int offset = rand.nextInt(4);
+            for (int k = 0; k < 4; k++) {
+                int spot = cell + orthogonal[(offset + k) & 3];
+                if (grid[spot] == EMPTY && !touchesTent(spot)) {
+                    write(cell, TREE, -1);
+                    write(spot, TENT, cell);
+                    tentCount++;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean touchesTent(int cell) {
+        for (int d : around) {
+            if (grid[cell + d] == TENT)
+                return true;
+        }
+        return false;
+    }
+
+    private void fillGreedy(SplittableRandom rand) {
+        Arrays.fill(grid, BORDER);
+        for (int r = 0; r < rows; r++) {
+            Arrays.fill(grid, cellIndex(r, 0), cellIndex(r, 0) + cols, EMPTY);
+        }
+        tentCount = 0;
+
+        for (int i = 0; i < order.length; i++) {
+            order[i] = cellIndex(i / cols, i % cols);
+        }
+        // Lazy Fisher-Yates: only the prefix that is visited gets shuffled
+        for (int i = 0; i < order.length && tentCount < targetTents; i++) {
+            int j = i + rand.nextInt(order.length - i);
+            int cell = order[j];
+            order[j] = order[i];
+            order[i] = cell;
+            if (canHostTent(cell))
+                placePair(cell, rand);
+        }
+    }
+
+    /**
+     * One repair step: pick a random empty cell, clear the tents that keep a
+     * tent off it, put a tent there and refill the window around it. The step
+     * is rolled back if it ends with fewer tents than it started with.
+     */
+    private boolean repair(SplittableRandom rand) {
+        int r = rand.nextInt(rows);
+        int c = rand.nextInt(cols);
+        int cell = cellIndex(r, c);
+        if (grid[cell] != EMPTY)
+            return false;
+
+        int before = tentCount;
+        logSize = 0;
+        logging = true;
+        for (int d : around) {
+            if (grid[cell + d] == TENT)
+                removePair(cell + d);
+        }
+        if (canHostTent(cell))
+            placePair(cell, rand);
+
+        int size = 0;
+        for (int dr = -REPAIR_RADIUS; dr <= REPAIR_RADIUS; dr++) {
+            for (int dc = -REPAIR_RADIUS; dc <= REPAIR_RADIUS; dc++) {
+                int nr = r + dr;
+                int nc = c + dc;
+                if (nr >= 0 && nr < rows && nc >= 0 && nc < cols)
+                    window[size++] = cellIndex(nr, nc);
+            }
+        }
+        for (int i = 0; i < size && tentCount < targetTents; i++) {
+            int j = i + rand.nextInt(size - i);
+            int w = window[j];
+            window[j] = window[i];
+            window[i] = w;
+            if (canHostTent(w))
+                placePair(w, rand);
+        }
+
+        logging = false;
+        if (tentCount >= before)
+            return true;
+        while (logSize > 0) {
+            logSize -= 3;
+            grid[log[logSize]] = (byte) log[logSize + 1];
+            treeOf[log[logSize]] = log[logSize + 2];
+        }
+        tentCount = before;
+        return false;
+    }
+
+    private boolean canHostTent(int cell) {
+        if (grid[cell] != EMPTY || touchesTent(cell))
+            return false;
+        for (int d : orthogonal) {
+            if (grid[cell + d] == EMPTY)
+                return true;
+        }
+        return false;
+    }
+
+    // Places a tent on cell and its tree on a random empty orthogonal neighbour
+    private void placePair(int cell, SplittableRandom rand) {
+        int free = 0;
+        for (int d : orthogonal) {
+            if (grid[cell + d] == EMPTY)
+                free++;
+        }
+        int pick = rand.nextInt(free);
+        for (int d : orthogonal) {
+            if (grid[cell + d] == EMPTY && pick-- == 0) {
+                write(cell + d, TREE, -1);
+                write(cell, TENT, cell + d);
+                break;
+            }
+        }
+        tentCount++;
+    }
+
+    private void removePair(int cell) {
+        write(treeOf[cell], EMPTY, -1);
+        write(cell, EMPTY, -1);
+        tentCount--;
+    }
+
+    private void write(int cell, byte value, int tree) {
+        if (logging) {
+            if (logSize + 3 > log.length)
+                log = Arrays.copyOf(log, log.length * 2);
+            log[logSize++] = cell;
+            log[logSize++] = grid[cell];
+            log[logSize++] = treeOf[cell];
+        }
+        grid[cell] = value;
+        treeOf[cell] = tree;
+    }
+
+    // Tents are read in row-major order, so tree ids follow their tents
+    private PuzzleData toPuzzle() {
+        PackedGrid solution = new PackedGrid(rows, cols);
+        List<Point> trees = new ArrayList<>(tentCount);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int cell = cellIndex(r, c);
+                solution.set(r, c, grid[cell]);
+                if (grid[cell] == TENT) {
+                    int tree = treeOf[cell];
+                    trees.add(new Point(tree / stride - 1, tree % stride - 1));
+                }
+            }
+        }
+        return new PuzzleData(solution, trees);
+    }
+
+    private int cellIndex(int r, int c) {
+        return (r + 1) * stride + c + 1;
+    }
+}
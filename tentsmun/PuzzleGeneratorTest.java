@@ -0,0 +1,373 @@
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+public class PuzzleGeneratorTest {
+    public static void main(String[] args) throws IOException {
+        testValidPuzzles();
+        testTightBoards();
+        testImpossibleTarget();
+        testDensity();
+        testUniquePuzzles();
+        testBatchDeterminism();
+        testPuzzleIds();
+        testGrading();
+        testPuzzleBank();
+    }
+
+    private static void testValidPuzzles() {
+        System.out.println("Testing generated puzzles...");
+        SplittableRandom rand = new SplittableRandom(1);
+        int[][] shapes = { { 5, 5 }, { 8, 8 }, { 10, 10 }, { 6, 11 }, { 200, 200 } };
+        for (int[] shape : shapes) {
+            PuzzleGenerator generator = new PuzzleGenerator(shape[0], shape[1]);
+            for (int i = 0; i < 20; i++) {
+                PuzzleData puzzle = generator.generate(rand);
+                checkPuzzle(puzzle, generator.getTargetTents());
+            }
+        }
+        System.out.println("Generated puzzle test passed.");
+    }
+
+    // 4 tents on 3x3 and 9 on 5x5 only fit in one arrangement each, so the
+    // first pass usually falls short and repair has to finish the job
+    private static void testTightBoards() {
+        System.out.println("Testing local repair on tight boards...");
+        SplittableRandom rand = new SplittableRandom(2);
+        int repairs = 0;
+        for (int i = 0; i < 50; i++) {
+            PuzzleGenerator generator = new PuzzleGenerator(3, 3, 4);
+            checkPuzzle(generator.generate(rand), 4);
+            repairs += generator.getLastStats().getRepairSteps();
+
+            generator = new PuzzleGenerator(5, 5, 9);
+            checkPuzzle(generator.generate(rand), 9);
+            repairs += generator.getLastStats().getRepairSteps();
+        }
+        if (repairs == 0)
+            throw new RuntimeException("Tight boards never needed a repair");
+        System.out.println("Tight board test passed (" + repairs + " repair steps).");
+    }
+
+    private static void testImpossibleTarget() {
+        System.out.println("Testing bounded failure...");
+        PuzzleGenerator generator = new PuzzleGenerator(2, 2);
+        try {
+            generator.generate(new SplittableRandom(3));
+            throw new RuntimeException("3 tents were placed on a 2x2 board");
+        } catch (IllegalStateException expected) {
+        }
+        if (generator.getLastStats() == null)
+            throw new RuntimeException("No stats after a failed generation");
+        System.out.println("Bounded failure test passed.");
+    }
+
+    private static void testDensity() {
+        System.out.println("Testing density-controlled generation...");
+        if (PuzzleGenerator.tentsForDensity(10, 10, 0.1) != 10 || PuzzleGenerator.tentsForDensity(3, 3, 0.01) != 1)
+            throw new RuntimeException("Wrong tent count for a density");
+        try {
+            PuzzleGenerator.tentsForDensity(10, 10, 0.25);
+            throw new RuntimeException("Density past the generator's reach was accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        SplittableRandom rand = new SplittableRandom(9);
+        int atCap = PuzzleGenerator.tentsForDensity(50, 50, PuzzleGenerator.MAX_DENSITY);
+        checkPuzzle(new PuzzleGenerator(50, 50, atCap).generate(rand), atCap);
+        PuzzleGenerator generator = new PuzzleGenerator(200, 200, PuzzleGenerator.tentsForDensity(200, 200, 0.2));
+        checkPuzzle(generator.generate(rand), 8000);
+
+        // checkPuzzle's GameState re-verifies its counters on every write
+        // under -ea, so the big board only gets the cheap checks
+        long start = System.nanoTime();
+        generator = new PuzzleGenerator(500, 500, PuzzleGenerator.tentsForDensity(500, 500, 0.2));
+        PuzzleData big = generator.generate(rand);
+        long ms = (System.nanoTime() - start) / 1000000;
+        int tents = 0;
+        for (int r = 0; r < 500; r++) {
+            tents += big.getRowTarget(r);
+        }
+        if (big.getTreeCount() != 50000 || tents != 50000)
+            throw new RuntimeException("500x500 puzzle at 20% is incomplete");
+
+        PuzzleId id = PuzzleId.random(40, 25, 0.15, false);
+        if (id.getTents() != 150)
+            throw new RuntimeException("Id has " + id.getTents() + " tents for 15% of 40x25");
+        checkPuzzle(id.generate(), 150);
+        System.out.println("Density test passed (500x500 at 20% in " + ms + " ms).");
+    }
+
+    private static void testUniquePuzzles() {
+        System.out.println("Testing unique-solution generation...");
+        SplittableRandom rand = new SplittableRandom(4);
+        PuzzleGenerator generator = new PuzzleGenerator(15, 15);
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            PuzzleData puzzle = generator.generateUnique(rand);
+            checkPuzzle(puzzle, generator.getTargetTents() + generator.getLastStats().getUniquenessFixes());
+            if (DivideConquerCPU.countSolutions(new GameState(puzzle), 3, null) != 1)
+                throw new RuntimeException("Generated puzzle is not unique");
+        }
+        long avgMs = (System.nanoTime() - start) / 50 / 1000000;
+
+        int side = PuzzleGenerator.MAX_UNIQUE_SIDE;
+        PuzzleGenerator largest = new PuzzleGenerator(side, side);
+        checkPuzzle(largest.generateUnique(rand), side + 1 + largest.getLastStats().getUniquenessFixes());
+        try {
+            new PuzzleGenerator(side, side + 1).generateUnique(rand);
+            throw new RuntimeException("Generated a unique puzzle over the size limit");
+        } catch (IllegalArgumentException expected) {
+        }
+        System.out.println("Unique generation test passed (avg " + avgMs + " ms per 15x15).");
+    }
+
+    private static void testBatchDeterminism() {
+        System.out.println("Testing parallel batch generation...");
+        BatchGenerator batch = new BatchGenerator(10, 10, true);
+        int count = 120;
+        PuzzleData[] single = new PuzzleData[count];
+        PuzzleData[] parallel = new PuzzleData[count];
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            batch.generate(one, 42L, count, (p, i) -> single[i] = p);
+            batch.generate(four, 42L, count, (p, i) -> parallel[i] = p);
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+        for (int i = 0; i < count; i++) {
+            if (single[i] == null || parallel[i] == null)
+                throw new RuntimeException("Puzzle " + i + " was not delivered");
+            if (!single[i].getTrees().equals(parallel[i].getTrees()))
+                throw new RuntimeException("Puzzle " + i + " depends on the thread count");
+        }
+        if (single[0].getTrees().equals(single[1].getTrees()))
+            throw new RuntimeException("Different indexes gave the same puzzle");
+        System.out.println("Batch generation test passed.");
+    }
+
+    private static void testPuzzleIds() {
+        System.out.println("Testing seeded puzzle ids...");
+        PuzzleId id = new PuzzleId(9, 12, 13, true, -123456789L);
+        PuzzleId parsed = PuzzleId.parse(id.toString());
+        if (!parsed.equals(id) || parsed.hashCode() != id.hashCode())
+            throw new RuntimeException("Id did not round-trip: " + id);
+
+        PuzzleData first = id.generate();
+        PuzzleData again = parsed.generate();
+        if (!first.getTrees().equals(again.getTrees()) || first.getId() != id)
+            throw new RuntimeException("Same id gave a different puzzle");
+        for (int r = 0; r < 9; r++) {
+            for (int c = 0; c < 12; c++) {
+                if (first.getSolutionCell(r, c) != again.getSolutionCell(r, c))
+                    throw new RuntimeException("Same id gave a different solution");
+            }
+        }
+        if (new PuzzleId(9, 12, 13, true, 1L).generate().getTrees().equals(first.getTrees()))
+            throw new RuntimeException("Different seeds gave the same puzzle");
+
+        // Ids already handed out must keep their puzzles. Each of these had
+        // a second solution blocked, which once followed the solver's order
+        String[] pinned = { "12x12-13u-1", "15x15-27u-2", "9x14-15u-3" };
+        int[] layouts = { 398740696, -226205000, -1769876965 };
+        for (int i = 0; i < pinned.length; i++) {
+            if (layoutHash(PuzzleId.parse(pinned[i]).generate()) != layouts[i])
+                throw new RuntimeException("Puzzle " + pinned[i] + " changed");
+        }
+
+        GameState state = new GameState(9, 12);
+        state.generatePuzzle(parsed);
+        if (!state.getTrees().equals(first.getTrees()) || !id.equals(state.getPuzzleId()))
+            throw new RuntimeException("GameState did not rebuild the puzzle from its id");
+
+        BatchGenerator batch = new BatchGenerator(8, 8, false);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            batch.generate(pool, 5L, 10, (p, i) -> {
+                if (!p.getId().equals(batch.idFor(5L, i)) || !p.getTrees().equals(p.getId().generate().getTrees()))
+                    throw new RuntimeException("Batch puzzle " + i + " does not match its id");
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        try {
+            PuzzleId.parse("8x8-nine-abc");
+            throw new RuntimeException("Malformed id was accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        System.out.println("Puzzle id test passed (" + id + ").");
+    }
+
+    private static void testGrading() {
+        System.out.println("Testing difficulty grading...");
+        // One tree in the corner: the row and column counts force its tent
+        int[][] grid = new int[3][3];
+        grid[0][0] = GameState.TENT;
+        grid[0][1] = GameState.TREE;
+        PuzzleData easy = new PuzzleData(3, grid, Arrays.asList(new Point(0, 1)));
+        DifficultyGrade grade = DifficultyGrader.grade(easy);
+        if (grade.getLevel() != DifficultyGrade.Level.EASY || grade.getNodes() != 1 || grade.getBacktracks() != 0)
+            throw new RuntimeException("Forced puzzle graded as " + grade);
+
+        int count = 100;
+        PuzzleData[] single = new PuzzleData[count];
+        PuzzleData[] parallel = new PuzzleData[count];
+        BatchGenerator batch = new BatchGenerator(12, 12, true);
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            batch.generate(four, 7L, count, (p, i) -> {
+                single[i] = p;
+                parallel[i] = p;
+            });
+            DifficultyGrader.gradeAll(one, single);
+            DifficultyGrader.gradeAll(four, parallel);
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+        int[] levels = new int[DifficultyGrade.Level.values().length];
+        for (int i = 0; i < count; i++) {
+            DifficultyGrade a = single[i].getGrade();
+            DifficultyGrade b = parallel[i].getGrade();
+            if (a == null || b == null || single[i].getId() == null)
+                throw new RuntimeException("Puzzle " + i + " lost its grade or id");
+            if (a.getLevel() != b.getLevel() || a.getNodes() != b.getNodes() || a.getBacktracks() != b.getBacktracks())
+                throw new RuntimeException("Grade of puzzle " + i + " depends on the thread count");
+            // Propagation covers the safe greedy tiers, so those need no branching
+            int tier = a.getGreedyTier();
+            if (tier >= GreedyCPU.TIER_FORCED && tier <= GreedyCPU.TIER_SINGLE_NEIGHBOR && a.getNodes() != 1)
+                throw new RuntimeException("Greedy solved puzzle " + i + " but search had to branch");
+            levels[a.getLevel().ordinal()]++;
+        }
+        System.out.println("Grading test passed (" + Arrays.toString(levels) + " by level).");
+    }
+
+    private static void testPuzzleBank() throws IOException {
+        System.out.println("Testing puzzle bank files...");
+        SplittableRandom rand = new SplittableRandom(8);
+        List<PuzzleData> written = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            written.add(DifficultyGrader.graded(PuzzleId.random(8, 8, true).generate()));
+            written.add(new PuzzleGenerator(5, 12).generate(rand));
+        }
+        written.add(new PuzzleGenerator(300, 300).generate(rand));
+
+        Path file = Files.createTempFile("tents", ".bank");
+        try {
+            try (PuzzleBank.Writer writer = new PuzzleBank.Writer(file)) {
+                for (PuzzleData p : written) {
+                    writer.add(p);
+                }
+            }
+            PuzzleBank bank = PuzzleBank.open(file);
+            if (bank.getTotalCount() != written.size() || bank.getCount(8, 8) != 30 || bank.getCount(5, 12) != 30
+                    || bank.getCount(300, 300) != 1 || bank.getCount(9, 9) != 0 || bank.getSizes().size() != 3)
+                throw new RuntimeException("Bank index does not match what was written");
+
+            int[] next = new int[3];
+            for (PuzzleData expected : written) {
+                int size = expected.getRows() == 8 ? 0 : expected.getRows() == 5 ? 1 : 2;
+                PuzzleData actual = bank.get(expected.getRows(), expected.getCols(), next[size]++);
+                if (!actual.getTrees().equals(expected.getTrees()))
+                    throw new RuntimeException("Bank changed the trees of a puzzle");
+                for (int r = 0; r < expected.getRows(); r++) {
+                    for (int c = 0; c < expected.getCols(); c++) {
+                        if (actual.getSolutionCell(r, c) != expected.getSolutionCell(r, c))
+                            throw new RuntimeException("Bank changed the solution of a puzzle");
+                    }
+                }
+                if (expected.getId() == null ? actual.getId() != null : !expected.getId().equals(actual.getId()))
+                    throw new RuntimeException("Bank lost the puzzle id");
+                DifficultyGrade grade = expected.getGrade();
+                if (grade == null ? actual.getGrade() != null
+                        : actual.getGrade() == null || actual.getGrade().getNodes() != grade.getNodes()
+                                || actual.getGrade().getLevel() != grade.getLevel())
+                    throw new RuntimeException("Bank lost the puzzle grade");
+            }
+            try {
+                bank.get(8, 8, 30);
+                throw new RuntimeException("Read past the end of a size");
+            } catch (IllegalArgumentException expected) {
+            }
+
+            long bytes = Files.size(file);
+            byte[] content = Files.readAllBytes(file);
+            content[11]++;
+            Files.write(file, content);
+            try {
+                PuzzleBank.open(file);
+                throw new RuntimeException("Opened a bank whose ids use another mapping");
+            } catch (IOException expected) {
+            }
+
+            Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13 });
+            try {
+                PuzzleBank.open(file);
+                throw new RuntimeException("Opened a file that is not a bank");
+            } catch (IOException expected) {
+            }
+            System.out.println("Puzzle bank test passed (" + bytes + " bytes for " + written.size() + " puzzles).");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static int layoutHash(PuzzleData puzzle) {
+        int hash = 0;
+        for (int r = 0; r < puzzle.getRows(); r++) {
+            for (int c = 0; c < puzzle.getCols(); c++) {
+                hash = 31 * hash + puzzle.getSolutionCell(r, c);
+            }
+        }
+        return hash;
+    }
+
+    private static void checkPuzzle(PuzzleData puzzle, int tents) {
+        int rows = puzzle.getRows();
+        int cols = puzzle.getCols();
+        List<Point> trees = puzzle.getTrees();
+        if (trees.size() != tents)
+            throw new RuntimeException("Expected " + tents + " trees, got " + trees.size());
+
+        int placed = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (puzzle.getSolutionCell(r, c) != GameState.TENT)
+                    continue;
+                placed++;
+                for (int dr = -1; dr <= 1; dr++) {
+                    for (int dc = -1; dc <= 1; dc++) {
+                        int nr = r + dr;
+                        int nc = c + dc;
+                        if ((dr != 0 || dc != 0) && nr >= 0 && nr < rows && nc >= 0 && nc < cols
+                                && puzzle.getSolutionCell(nr, nc) == GameState.TENT)
+                            throw new RuntimeException("Touching tents at " + r + "," + c);
+                    }
+                }
+            }
+        }
+        if (placed != tents)
+            throw new RuntimeException("Expected " + tents + " tents, got " + placed);
+
+        // The hidden solution must be a valid answer to its own puzzle
+        GameState state = new GameState(puzzle);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (puzzle.getSolutionCell(r, c) == GameState.TENT)
+                    state.setCell(r, c, GameState.TENT);
+            }
+        }
+        if (!state.isPuzzleComplete())
+            throw new RuntimeException("Hidden solution does not solve the puzzle: " + state.checkPuzzleStatus());
+    }
+}
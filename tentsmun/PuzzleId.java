@@ -0,0 +1,116 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Everything needed to rebuild a puzzle exactly: board shape, tent count,
+ * generation mode and the seed of its random stream. Written as a short
+ * string such as {@code 8x8-9u-3w5e11264sgsf} (u marks unique-solution mode),
+ * so puzzles can be shared, cached and recreated instead of stored.
+ */
+public final class PuzzleId {
+
+    /**
+     * Version of the mapping from ids to puzzles. A generator change that
+     * makes an existing id build a different puzzle must bump it; PuzzleBank
+     * records it and refuses banks written under another version.
+     */
+    public static final int MAPPING_VERSION = 1;
+
+    private final int rows;
+    private final int cols;
+    private final int tents;
+    private final boolean unique;
+    private final long seed;
+
+    public PuzzleId(int rows, int cols, int tents, boolean unique, long seed) {
+        if (rows <= 0 || cols <= 0 || tents <= 0)
+            throw new IllegalArgumentException("Bad puzzle shape " + rows + "x" + cols + " with " + tents + " tents");
+        this.rows = rows;
+        this.cols = cols;
+        this.tents = tents;
+        this.unique = unique;
+        this.seed = seed;
+    }
+
+    // Fresh random seed, with the usual N + 1 tents
+    public static PuzzleId random(int rows, int cols, boolean unique) {
+        return new PuzzleId(rows, cols, Math.max(rows, cols) + 1, unique, ThreadLocalRandom.current().nextLong());
+    }
+
+    // Fresh random seed, with a tree on the given fraction of the cells
+    public static PuzzleId random(int rows, int cols, double density, boolean unique) {
+        return new PuzzleId(rows, cols, PuzzleGenerator.tentsForDensity(rows, cols, density), unique,
+                ThreadLocalRandom.current().nextLong());
+    }
+
+    public static PuzzleId parse(String text) {
+        String[] parts = text.trim().split("-");
+        if (parts.length != 3)
+            throw new IllegalArgumentException("Not a puzzle id: " + text);
+        String[] shape = parts[0].split("x");
+        if (shape.length != 2)
+            throw new IllegalArgumentException("Not a puzzle id: " + text);
+        boolean unique = parts[1].endsWith("u");
+        String tents = unique ? parts[1].substring(0, parts[1].length() - 1) : parts[1];
+        try {
+            return new PuzzleId(Integer.parseInt(shape[0]), Integer.parseInt(shape[1]), Integer.parseInt(tents),
+                    unique, Long.parseUnsignedLong(parts[2], 36));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a puzzle id: " + text, e);
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    // Target tent count; unique puzzles may end up with a few more
+    public int getTents() {
+        return tents;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Rebuilds the puzzle; equal ids always give identical puzzles
+    public PuzzleData generate() {
+        return generate(new PuzzleGenerator(rows, cols, tents));
+    }
+
+    // Same, reusing a generator of the right shape (its stats describe this run)
+    public PuzzleData generate(PuzzleGenerator generator) {
+        if (generator.getRows() != rows || generator.getCols() != cols || generator.getTargetTents() != tents)
+            throw new IllegalArgumentException("Generator does not match puzzle " + this);
+        SplittableRandom rand = new SplittableRandom(seed);
+        PuzzleData puzzle = unique ? generator.generateUnique(rand) : generator.generate(rand);
+        return puzzle.withId(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PuzzleId))
+            return false;
+        PuzzleId other = (PuzzleId) o;
+        return rows == other.rows && cols == other.cols && tents == other.tents && unique == other.unique
+                && seed == other.seed;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) PuzzleData.mix64(seed ^ ((long) rows << 40) ^ ((long) cols << 20) ^ (tents << 1) ^ (unique ? 1 : 0));
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + cols + "-" + tents + (unique ? "u" : "") + "-" + Long.toUnsignedString(seed, 36);
+    }
+}
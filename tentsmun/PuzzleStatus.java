@@ -0,0 +1,86 @@
+import java.awt.Point;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable validation report for one board position, built by
+ * {@link GameState#getStatus()}. Lets the UI and automated clients see which
+ * rows, columns, tents and trees are wrong instead of parsing a message.
+ */
+public class PuzzleStatus {
+
+    // Two tents touching each other, orthogonally or diagonally
+    public static final class TentPair {
+        public final Point first;
+        public final Point second;
+
+        public TentPair(Point first, Point second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private final List<Integer> mismatchedRows;
+    private final List<Integer> mismatchedCols;
+    private final List<TentPair> touchingTents;
+    private final List<Point> unmatchedTrees;
+    private final List<Point> unmatchedTents;
+
+    public PuzzleStatus(List<Integer> mismatchedRows, List<Integer> mismatchedCols, List<TentPair> touchingTents,
+            List<Point> unmatchedTrees, List<Point> unmatchedTents) {
+        this.mismatchedRows = Collections.unmodifiableList(mismatchedRows);
+        this.mismatchedCols = Collections.unmodifiableList(mismatchedCols);
+        this.touchingTents = Collections.unmodifiableList(touchingTents);
+        this.unmatchedTrees = Collections.unmodifiableList(unmatchedTrees);
+        this.unmatchedTents = Collections.unmodifiableList(unmatchedTents);
+    }
+
+    public List<Integer> getMismatchedRows() {
+        return mismatchedRows;
+    }
+
+    public List<Integer> getMismatchedCols() {
+        return mismatchedCols;
+    }
+
+    public List<TentPair> getTouchingTents() {
+        return touchingTents;
+    }
+
+    // Trees without a tent of their own in the current maximum matching
+    public List<Point> getUnmatchedTrees() {
+        return unmatchedTrees;
+    }
+
+    // Tents that cannot be paired with a tree of their own
+    public List<Point> getUnmatchedTents() {
+        return unmatchedTents;
+    }
+
+    public boolean isCorrect() {
+        return mismatchedRows.isEmpty() && mismatchedCols.isEmpty() && touchingTents.isEmpty()
+                && unmatchedTrees.isEmpty() && unmatchedTents.isEmpty();
+    }
+
+    // Same wording the Check button has always shown
+    public String toMessage() {
+        StringBuilder sb = new StringBuilder();
+        for (int r : mismatchedRows)
+            sb.append("Row ").append(r).append(" mismatch. ");
+        for (int c : mismatchedCols)
+            sb.append("Col ").append(c).append(" mismatch. ");
+        if (!touchingTents.isEmpty())
+            sb.append("Tents are touching. ");
+        if (!unmatchedTrees.isEmpty() || !unmatchedTents.isEmpty())
+            sb.append("Trees/Tents not matched properly.");
+
+        if (sb.length() == 0)
+            return "Correct!";
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toMessage();
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Counters filled in by {@link DivideConquerCPU#solve(GameState, SolveStats)}:
+ * how many search nodes it visited, how deep the branching went and how many
+ * branches it had to undo. A puzzle that propagation alone finishes costs
+ * one node at depth 0 with no backtracks.
+ */
+public final class SolveStats {
+
+    private long nodes;
+    private int maxDepth;
+    private long backtracks;
+
+    // Called once per search node, depth = branches taken above it
+    void enter(int depth) {
+        nodes++;
+        if (depth > maxDepth)
+            maxDepth = depth;
+    }
+
+    void backtrack() {
+        backtracks++;
+    }
+
+    // Folds in the counters of a parallel subtask
+    void add(SolveStats other) {
+        nodes += other.nodes;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        backtracks += other.backtracks;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    @Override
+    public String toString() {
+        return "nodes=" + nodes + ", depth=" + maxDepth + ", backtracks=" + backtracks;
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.Arrays;
+
+/**
+ * Maximum matching between the current tents and the trees of a GameState.
+ * Edges are implied by the board (a tent is joined to the trees directly
+ * above, below, left and right of it) and read through the owner's cell
+ * indexes, so no edge lists or Points are built.
+ *
+ * The matching is kept live: {@link #clear} starts it empty for a new
+ * puzzle, and {@link #tentAdded} / {@link #tentRemoved} repair it with a
+ * single augmenting search, so the owner can read {@link #size()} in O(1)
+ * after every move. All work buffers are kept between calls and only grow.
+ */
+public class TentMatching {
+
+    private final int[] offsets;
+    private final CellIdMap tentIds;
+    private int[] tentCells;
+
+    // Per-puzzle tree layout, installed by setTrees
+    private TreeIndex trees;
+    private int treeCount;
+
+    private int tentCount;
+    private int size;
+
+    private int[] matchTent = new int[0];
+    private int[] matchTree = new int[0];
+
+    // BFS queue, visit stamps and parents for the incremental repairs
+    private int[] queue = new int[0];
+    private int[] tentStamp = new int[0];
+    private int[] treeStamp = new int[0];
+    private int[] parent = new int[0];
+    private int stamp;
+
+    // Shares the owner's tent indexes; they are read, never written. Cells
+    // are flat sentinel-bordered indexes, offsets the owner's four orthogonal
+    // neighbour offsets.
+    public TentMatching(int[] offsets, CellIdMap tentIds, int[] tentCells) {
+        this.offsets = offsets;
+        this.tentIds = tentIds;
+        this.tentCells = tentCells;
+    }
+
+    // The owner replaced its tent slot array with a larger one
+    public void setTentCells(int[] tentCells) {
+        this.tentCells = tentCells;
+    }
+
+    public void setTrees(TreeIndex trees) {
+        this.trees = trees;
+        this.treeCount = trees.size();
+    }
+
+    public void copyFrom(TentMatching other) {
+        setTrees(other.trees);
+        tentCount = other.tentCount;
+        size = other.size;
+        ensureCapacity();
+        System.arraycopy(other.matchTent, 0, matchTent, 0, tentCount);
+        System.arraycopy(other.matchTree, 0, matchTree, 0, treeCount);
+    }
+
+    // Number of matched tent/tree pairs
+    public int size() {
+        return size;
+    }
+
+    // Tree matched to tent slot u, or -1
+    public int getTreeOf(int tent) {
+        return matchTent[tent];
+    }
+
+    // Tent slot matched to tree t, or -1
+    public int getTentOf(int tree) {
+        return matchTree[tree];
+    }
+
+    // Forgets every tent, e.g. after the owner installs a new puzzle
+    public void clear() {
+        tentCount = 0;
+        size = 0;
+        ensureCapacity();
+        Arrays.fill(matchTree, 0, treeCount, -1);
+    }
+
+    /**
+     * A tent was appended at slot {@code u}. The matching can only grow by
+     * one, and only along an augmenting path that starts at the new tent.
+     */
+    public void tentAdded(int u) {
+        tentCount = u + 1;
+        ensureCapacity();
+        matchTent[u] = -1;
+
+        stamp++;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = u;
+        tentStamp[u] = stamp;
+        while (head < tail) {
+            int x = queue[head++];
+            int cell = tentCells[x];
+            for (int k = 0; k < 4; k++) {
+                int t = trees.idAt(cell + offsets[k]);
+                if (t < 0 || treeStamp[t] == stamp)
+                    continue;
+                treeStamp[t] = stamp;
+                parent[t] = x;
+                int w = matchTree[t];
+                if (w == -1) {
+                    // Flip the path back to u
+                    while (true) {
+                        int owner = parent[t];
+                        int previous = matchTent[owner];
+                        matchTent[owner] = t;
+                        matchTree[t] = owner;
+                        if (owner == u)
+                            break;
+                        t = previous;
+                    }
+                    size++;
+                    return;
+                }
+                if (tentStamp[w] != stamp) {
+                    tentStamp[w] = stamp;
+                    queue[tail++] = w;
+                }
+            }
+        }
+    }
+
+    /**
+     * The tent at slot {@code u} is gone and the owner moved its last slot
+     * {@code last} into {@code u}. If the removed tent was matched, its tree is
+     * now free, and one augmenting search from that tree restores maximality.
+     */
+    public void tentRemoved(int u, int last) {
+        int freed = matchTent[u];
+        if (last != u) {
+            int moved = matchTent[last];
+            matchTent[u] = moved;
+            if (moved != -1)
+                matchTree[moved] = u;
+        }
+        tentCount = last;
+        if (freed == -1)
+            return;
+        matchTree[freed] = -1;
+        size--;
+
+        stamp++;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = freed;
+        treeStamp[freed] = stamp;
+        while (head < tail) {
+            int t = queue[head++];
+            int cell = trees.cellOf(t);
+            for (int k = 0; k < 4; k++) {
+                int x = tentIds.get(cell + offsets[k]);
+                if (x < 0 || tentStamp[x] == stamp)
+                    continue;
+                tentStamp[x] = stamp;
+                parent[x] = t;
+                int w = matchTent[x];
+                if (w == -1) {
+                    // Flip the path back to the freed tree
+                    while (true) {
+                        int tree = parent[x];
+                        int previous = matchTree[tree];
+                        matchTree[tree] = x;
+                        matchTent[x] = tree;
+                        if (tree == freed)
+                            break;
+                        x = previous;
+                    }
+                    size++;
+                    return;
+                }
+                if (treeStamp[w] != stamp) {
+                    treeStamp[w] = stamp;
+                    queue[tail++] = w;
+                }
+            }
+        }
+    }
+
+    // Sizes every buffer for the current tentCount and treeCount
+    private void ensureCapacity() {
+        if (matchTent.length < tentCount) {
+            int cap = Math.max(tentCount, matchTent.length * 2);
+            matchTent = Arrays.copyOf(matchTent, cap);
+            tentStamp = Arrays.copyOf(tentStamp, cap);
+        }
+        if (matchTree.length < treeCount) {
+            matchTree = Arrays.copyOf(matchTree, treeCount);
+            treeStamp = Arrays.copyOf(treeStamp, treeCount);
+        }
+        // queue and parent hold tents or trees depending on the search
+        int both = Math.max(matchTent.length, treeCount);
+        if (queue.length < both) {
+            queue = new int[both];
+            parent = new int[both];
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+/**
+ * Remembers boards DivideConquerCPU has proven to have no solution, keyed
+ * by GameState's Zobrist key, so reaching one again through another move
+ * order is pruned at once. Only the 64-bit key is stored, in two-way
+ * buckets inside a fixed array sized from a memory cap: a new key goes in
+ * the first slot of its bucket and pushes the older one to the second,
+ * dropping whatever was there. A dropped entry only costs a re-search.
+ * Not thread-safe; use one table per searching thread.
+ */
+public final class TranspositionTable {
+
+    // Marks a free slot; a real key of 0 is stored as 1
+    private static final long FREE = 0L;
+
+    private final long[] keys;
+    private final int bucketMask;
+    private int size;
+
+    private long hits;
+    private long misses;
+    private long stores;
+    private long evictions;
+
+    /**
+     * Creates a table using at most {@code maxBytes} for its entries, 8
+     * bytes each, rounded down to a power of two (and at least one bucket).
+     */
+    public TranspositionTable(long maxBytes) {
+        long slots = Math.max(2, Math.min(maxBytes / 8, 1 << 30));
+        this.keys = new long[Integer.highestOneBit((int) slots)];
+        this.bucketMask = keys.length / 2 - 1;
+    }
+
+    // True if the board with this key is known to be dead
+    public boolean isDead(long key) {
+        key = stored(key);
+        int i = bucket(key);
+        if (keys[i] == key || keys[i + 1] == key) {
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    public void markDead(long key) {
+        key = stored(key);
+        int i = bucket(key);
+        if (keys[i] == key || keys[i + 1] == key)
+            return;
+        if (keys[i + 1] != FREE)
+            evictions++;
+        else
+            size++;
+        keys[i + 1] = keys[i];
+        keys[i] = key;
+        stores++;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+        hits = 0;
+        misses = 0;
+        stores = 0;
+        evictions = 0;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    // Entries currently held
+    public int getSize() {
+        return size;
+    }
+
+    public long getMemoryBytes() {
+        return keys.length * 8L;
+    }
+
+    // Lookups that pruned a board, and lookups that did not
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    // Stores that pushed an older entry out of a full bucket
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + ", misses=" + misses + ", stores=" + stores + ", evictions=" + evictions + ", size="
+                + size + "/" + keys.length;
+    }
+
+    private static long stored(long key) {
+        return key == FREE ? 1L : key;
+    }
+
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * 2;
+    }
+}
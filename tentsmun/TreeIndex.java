@@ -0,0 +1,60 @@
+/**
+ * Tree id by flat cell index for a fixed set of tree cells, in under two
+ * bits per cell of the grid: one bit marks each tree, every 64-cell word
+ * stores how many trees come before it, and a tree's id is looked up by its
+ * rank among the marked cells. Immutable, so one index is shared by every
+ * GameState playing the puzzle.
+ */
+public final class TreeIndex {
+
+    private final long[] marks;
+    private final int[] before;
+    // Ids of the trees in cell order, and the cell of each id
+    private final int[] idByRank;
+    private final int[] cells;
+
+    /**
+     * Indexes trees on a flat grid of {@code length} cells; {@code cells}
+     * holds the cell of each tree id and is kept, not copied.
+     */
+    public TreeIndex(int length, int[] cells) {
+        this.cells = cells;
+        this.marks = new long[(length + 63) >>> 6];
+        for (int cell : cells) {
+            if ((marks[cell >>> 6] & (1L << cell)) != 0)
+                throw new IllegalArgumentException("Two trees on cell " + cell);
+            marks[cell >>> 6] |= 1L << cell;
+        }
+        this.before = new int[marks.length];
+        int count = 0;
+        for (int w = 0; w < marks.length; w++) {
+            before[w] = count;
+            count += Long.bitCount(marks[w]);
+        }
+        this.idByRank = new int[cells.length];
+        for (int id = 0; id < cells.length; id++) {
+            idByRank[rank(cells[id])] = id;
+        }
+    }
+
+    // Id of the tree on cell, or -1
+    public int idAt(int cell) {
+        long bit = 1L << cell;
+        if ((marks[cell >>> 6] & bit) == 0)
+            return -1;
+        return idByRank[rank(cell)];
+    }
+
+    public int cellOf(int id) {
+        return cells[id];
+    }
+
+    public int size() {
+        return cells.length;
+    }
+
+    // Marked cells before this one
+    private int rank(int cell) {
+        return before[cell >>> 6] + Long.bitCount(marks[cell >>> 6] & ((1L << cell) - 1));
+    }
+}